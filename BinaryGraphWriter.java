@@ -0,0 +1,139 @@
+/**
+ * this class writes a graph in the versioned binary format that mappedgraph reads. the file holds
+ * a header, the town and road name string tables, the roads and the csr adjacency arrays, all as
+ * big-endian ints, followed by the utf-8 name bytes. towns are stored sorted by the bytes of their
+ * names so a reader can find a town by binary search without building a hash map.
+ *
+ * @author Leul Belay
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+public final class BinaryGraphWriter {
+
+    /**
+     * this class only has static methods
+     */
+    private BinaryGraphWriter() {
+    }
+
+    /**
+     * writes the current towns and roads of a graph to a file
+     *
+     * @param graph the graph to write
+     * @param file the file to create or overwrite
+     * @throws IOException if the file cannot be written or the graph is too large for the format
+     */
+    public static void write(Graph graph, File file) throws IOException {
+        write(graph.snapshot(), file);
+    }
+
+    /**
+     * writes a graph snapshot to a file
+     *
+     * @param s the snapshot to write
+     * @param file the file to create or overwrite
+     * @throws IOException if the file cannot be written or the graph is too large for the format
+     */
+    public static void write(GraphSnapshot s, File file) throws IOException {
+        int vertexCount = s.vertexCount();
+        int roadCount = s.roadCount();
+        int slotCount = s.edgeSlotCount();
+
+        byte[][] townNames = new byte[vertexCount][];
+        for (int v = 0; v < vertexCount; v++) {
+            townNames[v] = s.town(v).getName().getBytes(StandardCharsets.UTF_8);
+        }
+        Integer[] order = new Integer[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            order[v] = v;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer v) -> townNames[v], Arrays::compareUnsigned));
+        int[] newIds = new int[vertexCount];
+        for (int i = 0; i < vertexCount; i++) {
+            newIds[order[i]] = i;
+        }
+        byte[][] roadNames = new byte[roadCount][];
+        long townBytes = 0;
+        long roadBytes = 0;
+        for (byte[] name : townNames) {
+            townBytes += name.length;
+        }
+        for (int r = 0; r < roadCount; r++) {
+            roadNames[r] = s.road(r).getName().getBytes(StandardCharsets.UTF_8);
+            roadBytes += roadNames[r].length;
+        }
+        long size = MappedGraph.HEADER_BYTES + 4L * (2L * vertexCount + 4L * roadCount + 3L * slotCount + 3)
+                + townBytes + roadBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("graph is too large for the binary format: " + size + " bytes");
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MappedGraph.MAGIC);
+            out.writeInt(MappedGraph.VERSION);
+            out.writeInt(vertexCount);
+            out.writeInt(roadCount);
+            out.writeInt(slotCount);
+            out.writeInt((int) townBytes);
+            out.writeInt((int) roadBytes);
+
+            int offset = 0;
+            for (int i = 0; i < vertexCount; i++) {
+                out.writeInt(offset);
+                offset += townNames[order[i]].length;
+            }
+            out.writeInt(offset);
+            offset = 0;
+            for (int r = 0; r < roadCount; r++) {
+                out.writeInt(offset);
+                offset += roadNames[r].length;
+            }
+            out.writeInt(offset);
+            for (int r = 0; r < roadCount; r++) {
+                out.writeInt(newIds[s.idOf(s.road(r).getSource())]);
+            }
+            for (int r = 0; r < roadCount; r++) {
+                out.writeInt(newIds[s.idOf(s.road(r).getDestination())]);
+            }
+            for (int r = 0; r < roadCount; r++) {
+                out.writeInt(s.road(r).getWeight());
+            }
+
+            int slot = 0;
+            for (int i = 0; i < vertexCount; i++) {
+                out.writeInt(slot);
+                slot += s.endEdge(order[i]) - s.firstEdge(order[i]);
+            }
+            out.writeInt(slot);
+            for (int i = 0; i < vertexCount; i++) {
+                for (int e = s.firstEdge(order[i]), end = s.endEdge(order[i]); e < end; e++) {
+                    out.writeInt(newIds[s.target(e)]);
+                }
+            }
+            for (int i = 0; i < vertexCount; i++) {
+                for (int e = s.firstEdge(order[i]), end = s.endEdge(order[i]); e < end; e++) {
+                    out.writeInt(s.weight(e));
+                }
+            }
+            for (int i = 0; i < vertexCount; i++) {
+                for (int e = s.firstEdge(order[i]), end = s.endEdge(order[i]); e < end; e++) {
+                    out.writeInt(s.roadId(e));
+                }
+            }
+
+            for (int i = 0; i < vertexCount; i++) {
+                out.write(townNames[order[i]]);
+            }
+            for (byte[] name : roadNames) {
+                out.write(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,675 @@
+/**
+ * this class represents a contraction hierarchies routing engine built from a graph snapshot.
+ * preprocessing contracts the towns one by one in order of importance and adds a shortcut road
+ * between two neighbours of a contracted town whenever the path through it is the only shortest
+ * one. a query then only has to search upward (towards more important towns) from both ends,
+ * which settles a tiny part of the graph. shortcuts are unpacked back into the original roads,
+ * so paths come out in the same "town1 via road to town2 N mi" format as graph.shortestpath.
+ *
+ * @author Leul Belay
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class ContractionHierarchy {
+
+    /**
+     * the most towns a witness search settles before it gives up and assumes a shortcut is needed
+     */
+    private static final int WITNESS_SETTLE_LIMIT = 64;
+
+    /**
+     * the settle limit of the witness searches that only estimate a town's priority, kept smaller
+     * because every town is estimated several times
+     */
+    private static final int SIMULATION_SETTLE_LIMIT = 16;
+
+    /**
+     * the snapshot the hierarchy was built on
+     */
+    private final GraphSnapshot snapshot;
+
+    /**
+     * rank holds the contraction order of each town, higher means more important
+     */
+    private final int[] rank;
+
+    /**
+     * the number of edges, original and shortcut
+     */
+    private int edgeCount;
+
+    /**
+     * edgefrom and edgeto hold the two towns of each edge
+     */
+    private int[] edgeFrom;
+
+    /**
+     * edgeto holds the second town of each edge
+     */
+    private int[] edgeTo;
+
+    /**
+     * edgeweight holds the distance of each edge
+     */
+    private int[] edgeWeight;
+
+    /**
+     * edgeroad holds the road id of an original edge, or -1 for a shortcut
+     */
+    private int[] edgeRoad;
+
+    /**
+     * edgefirst holds, for a shortcut, the edge from edgefrom to the contracted town
+     */
+    private int[] edgeFirst;
+
+    /**
+     * edgesecond holds, for a shortcut, the edge from the contracted town to edgeto
+     */
+    private int[] edgeSecond;
+
+    /**
+     * upoffsets, uptargets, upweights and upedges are the csr arrays of the upward graph: the
+     * edges of each town that lead to a town of higher rank
+     */
+    private final int[] upOffsets;
+
+    /**
+     * uptargets holds the higher ranked town of each upward edge slot
+     */
+    private final int[] upTargets;
+
+    /**
+     * upweights holds the distance of each upward edge slot
+     */
+    private final int[] upWeights;
+
+    /**
+     * upedges holds the edge id of each upward edge slot
+     */
+    private final int[] upEdges;
+
+    /**
+     * builds the hierarchy for a snapshot
+     *
+     * @param snapshot the snapshot to preprocess
+     */
+    public ContractionHierarchy(GraphSnapshot snapshot) {
+        this.snapshot = snapshot;
+        int vertexCount = snapshot.vertexCount();
+        rank = new int[vertexCount];
+        int capacity = Math.max(16, snapshot.roadCount() * 2);
+        edgeFrom = new int[capacity];
+        edgeTo = new int[capacity];
+        edgeWeight = new int[capacity];
+        edgeRoad = new int[capacity];
+        edgeFirst = new int[capacity];
+        edgeSecond = new int[capacity];
+
+        Contractor contractor = new Contractor(vertexCount);
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = snapshot.firstEdge(v), end = snapshot.endEdge(v); e < end; e++) {
+                int u = snapshot.target(e);
+                if (v < u) {
+                    contractor.connect(addEdge(v, u, snapshot.weight(e), snapshot.roadId(e), -1, -1));
+                }
+            }
+        }
+        contractor.contractAll();
+
+        upOffsets = new int[vertexCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            upOffsets[lower(e) + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+        }
+        upTargets = new int[edgeCount];
+        upWeights = new int[edgeCount];
+        upEdges = new int[edgeCount];
+        int[] fill = Arrays.copyOf(upOffsets, vertexCount);
+        for (int e = 0; e < edgeCount; e++) {
+            int low = lower(e);
+            int slot = fill[low]++;
+            upTargets[slot] = (low == edgeFrom[e]) ? edgeTo[e] : edgeFrom[e];
+            upWeights[slot] = edgeWeight[e];
+            upEdges[slot] = e;
+        }
+    }
+
+    /**
+     * returns the snapshot the hierarchy was built on
+     *
+     * @return the snapshot
+     */
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * returns the number of shortcut edges added by the preprocessing
+     *
+     * @return the shortcut count
+     */
+    public int shortcutCount() {
+        int shortcuts = 0;
+        for (int e = 0; e < edgeCount; e++) {
+            if (edgeRoad[e] < 0) {
+                shortcuts++;
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * returns the shortest road distance between two towns
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return the distance, or SearchState.UNREACHED if there is no path or a town is not in the snapshot
+     */
+    public int distance(Town sourceVertex, Town destinationVertex) {
+        int sourceId = snapshot.idOf(sourceVertex);
+        int targetId = snapshot.idOf(destinationVertex);
+        if (sourceId < 0 || targetId < 0) {
+            return SearchState.UNREACHED;
+        }
+        SearchState forward = SearchState.forCurrentThread(snapshot.vertexCount());
+        SearchState backward = SearchState.reverseForCurrentThread(snapshot.vertexCount());
+        int meeting = search(sourceId, targetId, forward, backward);
+        return (meeting < 0) ? SearchState.UNREACHED : forward.distance(meeting) + backward.distance(meeting);
+    }
+
+    /**
+     * builds the shortest route between two towns with a bidirectional upward search, unpacking
+     * every shortcut into the roads it stands for
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return the route, or PathResult.NOT_FOUND if the towns are not connected or not in the graph
+     */
+    public PathResult route(Town sourceVertex, Town destinationVertex) {
+        int sourceId = snapshot.idOf(sourceVertex);
+        int targetId = snapshot.idOf(destinationVertex);
+        if (sourceId < 0 || targetId < 0) {
+            return PathResult.NOT_FOUND;
+        }
+        SearchState forward = SearchState.forCurrentThread(snapshot.vertexCount());
+        SearchState backward = SearchState.reverseForCurrentThread(snapshot.vertexCount());
+        int meeting = search(sourceId, targetId, forward, backward);
+        if (meeting < 0) {
+            return PathResult.NOT_FOUND;
+        }
+
+        int forwardCount = 0;
+        for (int v = meeting; forward.previousVertex(v) >= 0; v = forward.previousVertex(v)) {
+            forwardCount++;
+        }
+        int[] forwardEdges = new int[forwardCount];
+        int[] forwardStarts = new int[forwardCount];
+        int i = forwardCount;
+        for (int v = meeting; forward.previousVertex(v) >= 0; v = forward.previousVertex(v)) {
+            i--;
+            forwardEdges[i] = forward.previousRoad(v);
+            forwardStarts[i] = forward.previousVertex(v);
+        }
+        Route route = new Route(sourceId);
+        for (i = 0; i < forwardCount; i++) {
+            unpack(forwardEdges[i], forwardStarts[i], route);
+        }
+        for (int v = meeting; backward.previousVertex(v) >= 0; v = backward.previousVertex(v)) {
+            unpack(backward.previousRoad(v), v, route);
+        }
+        return PathResult.of(snapshot, Arrays.copyOf(route.towns, route.hops + 1), Arrays.copyOf(route.roads, route.hops));
+    }
+
+    /**
+     * builds the shortest path between two towns with a bidirectional upward search, unpacking
+     * every shortcut into the roads it stands for
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return arraylist of road strings in the format "town1 via roadName to town2 distance mi"
+     */
+    public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+        return route(sourceVertex, destinationVertex).toList();
+    }
+
+    /**
+     * runs dijkstra's algorithm upward from both towns, always growing the side with the smaller
+     * frontier key, until neither side can beat the best meeting town found. the previous road of
+     * each town in the states holds the hierarchy edge id it was reached by
+     *
+     * @param sourceId the id of the start town
+     * @param targetId the id of the end town
+     * @param forward the cleared state for the search from the source
+     * @param backward the cleared state for the search from the target
+     * @return the meeting town, or -1 if the towns are not connected
+     */
+    private int search(int sourceId, int targetId, SearchState forward, SearchState backward) {
+        forward.update(sourceId, 0, -1, -1);
+        backward.update(targetId, 0, -1, -1);
+        forward.heap().insertOrDecrease(sourceId, 0);
+        backward.heap().insertOrDecrease(targetId, 0);
+
+        long best = Long.MAX_VALUE;
+        int meeting = -1;
+        while (true) {
+            IndexedMinHeap forwardQueue = forward.heap();
+            IndexedMinHeap backwardQueue = backward.heap();
+            boolean growForward;
+            if (forwardQueue.isEmpty() && backwardQueue.isEmpty()) {
+                break;
+            } else if (forwardQueue.isEmpty()) {
+                growForward = false;
+            } else if (backwardQueue.isEmpty()) {
+                growForward = true;
+            } else {
+                growForward = forwardQueue.peekKey() <= backwardQueue.peekKey();
+            }
+            SearchState side = growForward ? forward : backward;
+            SearchState other = growForward ? backward : forward;
+            if (side.heap().peekKey() >= best) {
+                break;
+            }
+
+            int current = side.heap().poll();
+            int currentDistance = side.distance(current);
+            int otherDistance = other.distance(current);
+            if (otherDistance != SearchState.UNREACHED && (long) currentDistance + otherDistance < best) {
+                best = (long) currentDistance + otherDistance;
+                meeting = current;
+            }
+            for (int slot = upOffsets[current], end = upOffsets[current + 1]; slot < end; slot++) {
+                int neighbor = upTargets[slot];
+                int newDist = currentDistance + upWeights[slot];
+                if (newDist < side.distance(neighbor)) {
+                    side.update(neighbor, newDist, current, upEdges[slot]);
+                    side.heap().insertOrDecrease(neighbor, newDist);
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * appends the original roads an edge stands for, walked starting from the given town
+     *
+     * @param edge the edge to unpack
+     * @param start the town of the edge the walk starts from
+     * @param route the route to append the roads to
+     */
+    private void unpack(int edge, int start, Route route) {
+        int[] edges = new int[16];
+        int[] starts = new int[16];
+        int top = 0;
+        edges[top] = edge;
+        starts[top++] = start;
+        while (top > 0) {
+            int e = edges[--top];
+            int from = starts[top];
+            int to = (from == edgeFrom[e]) ? edgeTo[e] : edgeFrom[e];
+            if (edgeRoad[e] >= 0) {
+                route.add(edgeRoad[e], to);
+                continue;
+            }
+            int first = (from == edgeFrom[e]) ? edgeFirst[e] : edgeSecond[e];
+            int second = (from == edgeFrom[e]) ? edgeSecond[e] : edgeFirst[e];
+            int middle = (edgeFrom[first] == from) ? edgeTo[first] : edgeFrom[first];
+            if (top + 2 > edges.length) {
+                edges = Arrays.copyOf(edges, edges.length * 2);
+                starts = Arrays.copyOf(starts, starts.length * 2);
+            }
+            edges[top] = second;
+            starts[top++] = middle;
+            edges[top] = first;
+            starts[top++] = from;
+        }
+    }
+
+    /**
+     * returns the lower ranked town of an edge
+     *
+     * @param e the edge id
+     * @return the town id with the lower rank
+     */
+    private int lower(int e) {
+        return (rank[edgeFrom[e]] < rank[edgeTo[e]]) ? edgeFrom[e] : edgeTo[e];
+    }
+
+    /**
+     * adds an edge to the edge arrays
+     *
+     * @param from one town
+     * @param to the other town
+     * @param weight the distance
+     * @param road the road id for an original edge, or -1 for a shortcut
+     * @param first for a shortcut, the edge from from to the contracted town
+     * @param second for a shortcut, the edge from the contracted town to to
+     * @return the new edge id
+     */
+    private int addEdge(int from, int to, int weight, int road, int first, int second) {
+        if (edgeCount == edgeFrom.length) {
+            int capacity = edgeCount * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, capacity);
+            edgeTo = Arrays.copyOf(edgeTo, capacity);
+            edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+            edgeRoad = Arrays.copyOf(edgeRoad, capacity);
+            edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+            edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+        }
+        edgeFrom[edgeCount] = from;
+        edgeTo[edgeCount] = to;
+        edgeWeight[edgeCount] = weight;
+        edgeRoad[edgeCount] = road;
+        edgeFirst[edgeCount] = first;
+        edgeSecond[edgeCount] = second;
+        return edgeCount++;
+    }
+
+    /**
+     * this class holds the working state of the preprocessing: the edges of each town that is not
+     * contracted yet and the queue of towns ordered by how cheap they are to contract
+     */
+    private final class Contractor {
+
+        /**
+         * incident holds the edge ids touching each town
+         */
+        private final int[][] incident;
+
+        /**
+         * incidentcount holds how many entries of incident are used
+         */
+        private final int[] incidentCount;
+
+        /**
+         * contracted marks the towns already contracted
+         */
+        private final boolean[] contracted;
+
+        /**
+         * contractedneighbors counts the contracted neighbours of each town, which spreads the
+         * contraction evenly over the graph
+         */
+        private final int[] contractedNeighbors;
+
+        /**
+         * bestedge holds, while a town is being contracted, its lightest edge to each neighbour
+         */
+        private final int[] bestEdge;
+
+        /**
+         * the state the witness searches run on
+         */
+        private final SearchState witness;
+
+        /**
+         * neighbors and neighboredges hold the neighbours of the town being contracted
+         */
+        private int[] neighbors = new int[16];
+
+        /**
+         * neighboredges holds the lightest edge to each entry of neighbors
+         */
+        private int[] neighborEdges = new int[16];
+
+        /**
+         * the number of entries of neighbors filled by the last contraction or simulation
+         */
+        private int neighborCount;
+
+        /**
+         * creates the working state for the given number of towns
+         *
+         * @param vertexCount the number of towns
+         */
+        Contractor(int vertexCount) {
+            incident = new int[vertexCount][];
+            incidentCount = new int[vertexCount];
+            contracted = new boolean[vertexCount];
+            contractedNeighbors = new int[vertexCount];
+            bestEdge = new int[vertexCount];
+            Arrays.fill(bestEdge, -1);
+            witness = new SearchState(vertexCount);
+        }
+
+        /**
+         * adds an edge to the incidence lists of both its towns
+         *
+         * @param e the edge id
+         */
+        void connect(int e) {
+            attach(edgeFrom[e], e);
+            attach(edgeTo[e], e);
+        }
+
+        /**
+         * contracts every town, cheapest first. the neighbours of a contracted town get their
+         * priority recomputed right away, and every town is re-checked once more when it comes up
+         */
+        void contractAll() {
+            int vertexCount = incident.length;
+            IndexedMinHeap queue = new IndexedMinHeap(vertexCount);
+            for (int v = 0; v < vertexCount; v++) {
+                queue.insertOrDecrease(v, priority(v));
+            }
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+                int updated = priority(v);
+                if (!queue.isEmpty() && updated > queue.peekKey()) {
+                    queue.insertOrDecrease(v, updated);
+                    continue;
+                }
+                contract(v, false);
+                contracted[v] = true;
+                rank[v] = order++;
+                int[] affected = Arrays.copyOf(neighbors, neighborCount);
+                for (int u : affected) {
+                    contractedNeighbors[u]++;
+                    queue.changeKey(u, priority(u));
+                }
+            }
+        }
+
+        /**
+         * returns how attractive it is to contract a town next: the shortcuts it would need minus
+         * the edges it removes, plus its contracted neighbours
+         *
+         * @param v the town id
+         * @return the priority, lower is contracted earlier
+         */
+        private int priority(int v) {
+            int shortcuts = contract(v, true);
+            return shortcuts - neighborCount + contractedNeighbors[v];
+        }
+
+        /**
+         * finds the shortcuts needed to contract a town, adding them unless simulate is true
+         *
+         * @param v the town id
+         * @param simulate true to only count the shortcuts
+         * @return the number of shortcuts needed
+         */
+        private int contract(int v, boolean simulate) {
+            neighborCount = collectNeighbors(v);
+            int shortcuts = 0;
+            for (int i = 0; i + 1 < neighborCount; i++) {
+                int u = neighbors[i];
+                int toU = edgeWeight[neighborEdges[i]];
+                int limit = 0;
+                for (int j = i + 1; j < neighborCount; j++) {
+                    limit = Math.max(limit, toU + edgeWeight[neighborEdges[j]]);
+                }
+                witnessSearch(u, v, limit, simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                for (int j = i + 1; j < neighborCount; j++) {
+                    int w = neighbors[j];
+                    int via = toU + edgeWeight[neighborEdges[j]];
+                    if (witness.distance(w) > via) {
+                        shortcuts++;
+                        if (!simulate) {
+                            connect(addEdge(u, w, via, -1, neighborEdges[i], neighborEdges[j]));
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        /**
+         * fills neighbors and neighboredges with the uncontracted neighbours of a town and the
+         * lightest edge to each of them
+         *
+         * @param v the town id
+         * @return the number of neighbours
+         */
+        private int collectNeighbors(int v) {
+            prune(v);
+            int count = 0;
+            for (int i = 0; i < incidentCount[v]; i++) {
+                int e = incident[v][i];
+                int u = (edgeFrom[e] == v) ? edgeTo[e] : edgeFrom[e];
+                if (u == v) {
+                    continue;
+                }
+                int known = bestEdge[u];
+                if (known < 0) {
+                    if (count == neighbors.length) {
+                        neighbors = Arrays.copyOf(neighbors, count * 2);
+                        neighborEdges = Arrays.copyOf(neighborEdges, count * 2);
+                    }
+                    bestEdge[u] = count;
+                    neighbors[count] = u;
+                    neighborEdges[count++] = e;
+                } else if (edgeWeight[e] < edgeWeight[neighborEdges[known]]) {
+                    neighborEdges[known] = e;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                bestEdge[neighbors[i]] = -1;
+            }
+            return count;
+        }
+
+        /**
+         * drops the edges to contracted towns from the incidence list of a town, so later
+         * searches do not keep stepping over them
+         *
+         * @param v the town id
+         */
+        private void prune(int v) {
+            int[] list = incident[v];
+            int kept = 0;
+            for (int i = 0; i < incidentCount[v]; i++) {
+                int e = list[i];
+                int u = (edgeFrom[e] == v) ? edgeTo[e] : edgeFrom[e];
+                if (!contracted[u]) {
+                    list[kept++] = e;
+                }
+            }
+            incidentCount[v] = kept;
+        }
+
+        /**
+         * runs a small dijkstra search from a town over the uncontracted towns, skipping the town
+         * being contracted, to find paths that make a shortcut unnecessary
+         *
+         * @param source the town to start from
+         * @param skipped the town being contracted
+         * @param limit the distance past which paths are no use
+         * @param settleLimit the most towns to settle
+         */
+        private void witnessSearch(int source, int skipped, int limit, int settleLimit) {
+            witness.reset();
+            witness.update(source, 0, -1, -1);
+            IndexedMinHeap queue = witness.heap();
+            queue.insertOrDecrease(source, 0);
+            int settled = 0;
+            while (!queue.isEmpty() && settled++ < settleLimit) {
+                if (queue.peekKey() > limit) {
+                    break;
+                }
+                int current = queue.poll();
+                int currentDistance = witness.distance(current);
+                prune(current);
+                for (int i = 0; i < incidentCount[current]; i++) {
+                    int e = incident[current][i];
+                    int u = (edgeFrom[e] == current) ? edgeTo[e] : edgeFrom[e];
+                    if (u == skipped || contracted[u]) {
+                        continue;
+                    }
+                    int newDist = currentDistance + edgeWeight[e];
+                    if (newDist < witness.distance(u)) {
+                        witness.update(u, newDist, current, e);
+                        queue.insertOrDecrease(u, newDist);
+                    }
+                }
+            }
+        }
+
+        /**
+         * adds an edge id to the incidence list of a town
+         *
+         * @param v the town id
+         * @param e the edge id
+         */
+        private void attach(int v, int e) {
+            int[] list = incident[v];
+            if (list == null) {
+                list = new int[4];
+                incident[v] = list;
+            } else if (incidentCount[v] == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                incident[v] = list;
+            }
+            list[incidentCount[v]++] = e;
+        }
+    }
+
+    /**
+     * this class collects the town and road ids of a route while shortcuts are unpacked
+     */
+    private static final class Route {
+
+        /**
+         * the town ids so far, starting with the source
+         */
+        private int[] towns = new int[16];
+
+        /**
+         * the road ids so far
+         */
+        private int[] roads = new int[16];
+
+        /**
+         * the number of roads so far
+         */
+        private int hops;
+
+        /**
+         * starts a route at a town
+         *
+         * @param sourceId the id of the start town
+         */
+        Route(int sourceId) {
+            towns[0] = sourceId;
+        }
+
+        /**
+         * appends a road and the town it leads to
+         *
+         * @param roadId the road id
+         * @param to the id of the town at its far end
+         */
+        void add(int roadId, int to) {
+            if (hops + 1 >= towns.length) {
+                towns = Arrays.copyOf(towns, towns.length * 2);
+                roads = Arrays.copyOf(roads, roads.length * 2);
+            }
+            roads[hops++] = roadId;
+            towns[hops] = to;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContractionHierarchy_STUDENT_Test {
+    private Graph graph;
+    private Town[] town;
+    private ContractionHierarchy hierarchy;
+
+    @Before
+    public void setUp() throws Exception {
+        graph = new Graph();
+        town = new Town[13];
+        for (int i = 1; i < 13; i++) {
+            town[i] = new Town("City_" + i);
+            graph.addVertex(town[i]);
+        }
+        graph.addEdge(town[1], town[2], 3, "Street_1");
+        graph.addEdge(town[1], town[3], 7, "Street_2");
+        graph.addEdge(town[1], town[5], 9, "Street_3");
+        graph.addEdge(town[3], town[7], 2, "Street_4");
+        graph.addEdge(town[3], town[8], 4, "Street_5");
+        graph.addEdge(town[4], town[8], 6, "Street_6");
+        graph.addEdge(town[6], town[9], 7, "Street_7");
+        graph.addEdge(town[9], town[10], 4, "Street_8");
+        graph.addEdge(town[8], town[10], 2, "Street_9");
+        graph.addEdge(town[5], town[10], 5, "Street_10");
+        graph.addEdge(town[10], town[11], 3, "Street_11");
+        graph.addEdge(town[2], town[11], 8, "Street_12");
+        hierarchy = new ContractionHierarchy(graph.snapshot());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        graph = null;
+        town = null;
+        hierarchy = null;
+    }
+
+    @Test
+    public void testDistancesMatchDijkstra() {
+        for (int i = 1; i < 13; i++) {
+            ShortestPathTree tree = graph.shortestPathTree(town[i]);
+            for (int j = 1; j < 13; j++) {
+                assertEquals(tree.distanceTo(town[j]), hierarchy.distance(town[i], town[j]));
+            }
+        }
+    }
+
+    @Test
+    public void testUnpackedPath() {
+        ArrayList<String> path = hierarchy.shortestPath(town[1], town[6]);
+        assertEquals(5, path.size());
+        assertEquals("City_1 via Street_2 to City_3 7 mi", path.get(0));
+        assertEquals("City_3 via Street_5 to City_8 4 mi", path.get(1));
+        assertEquals("City_8 via Street_9 to City_10 2 mi", path.get(2));
+        assertEquals("City_10 via Street_8 to City_9 4 mi", path.get(3));
+        assertEquals("City_9 via Street_7 to City_6 7 mi", path.get(4));
+    }
+
+    @Test
+    public void testDisconnectedAndSameTown() {
+        assertTrue(hierarchy.shortestPath(town[1], town[12]).isEmpty());
+        assertEquals(SearchState.UNREACHED, hierarchy.distance(town[1], town[12]));
+        assertTrue(hierarchy.shortestPath(town[4], town[4]).isEmpty());
+        assertEquals(0, hierarchy.distance(town[4], town[4]));
+    }
+
+    @Test
+    public void testRoutingModeRebuildsAfterChange() {
+        graph.setRoutingMode(RoutingMode.CONTRACTION_HIERARCHY);
+        assertEquals(2, graph.shortestPath(town[1], town[11]).size());
+        ContractionHierarchy built = graph.contractionHierarchy();
+        graph.addEdge(town[1], town[11], 2, "Street_13");
+        assertNotSame(built, graph.contractionHierarchy());
+        assertEquals("City_1 via Street_13 to City_11 2 mi", graph.shortestPath(town[1], town[11]).get(0));
+    }
+}
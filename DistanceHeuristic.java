@@ -0,0 +1,58 @@
+/**
+ * this interface represents a lower bound on the road distance between two towns, used to guide
+ * a* searches. an estimate must never be larger than the real shortest distance (admissible),
+ * otherwise a* may return a longer route than dijkstra's algorithm.
+ *
+ * @author Leul Belay
+ */
+@FunctionalInterface
+public interface DistanceHeuristic {
+
+    /**
+     * the heuristic that always estimates 0, which turns a* into plain dijkstra
+     */
+    DistanceHeuristic NONE = (from, to) -> 0;
+
+    /**
+     * returns a lower bound on the road distance between two towns
+     *
+     * @param from the town the search is at
+     * @param to the destination town
+     * @return a distance that is not larger than the shortest road distance
+     */
+    int estimate(Town from, Town to);
+
+    /**
+     * returns a lower bound on the road distance between two towns of a snapshot. heuristics that
+     * keep their own tables by town id can override this to skip the lookup of the town objects
+     *
+     * @param s the snapshot being searched
+     * @param fromId the id of the town the search is at
+     * @param toId the id of the destination town
+     * @return a distance that is not larger than the shortest road distance
+     */
+    default int estimate(GraphSnapshot s, int fromId, int toId) {
+        return estimate(s.town(fromId), s.town(toId));
+    }
+
+    /**
+     * returns a heuristic that takes the straight-line distance between the coordinates of two
+     * towns times milesperunit. it is admissible as long as no road is shorter than milesperunit
+     * times the straight-line distance between its towns. towns without coordinates estimate 0
+     *
+     * @param milesPerUnit the road miles per unit of coordinate distance
+     * @return the straight-line heuristic
+     */
+    static DistanceHeuristic straightLine(double milesPerUnit) {
+        if (!(milesPerUnit >= 0)) {
+            throw new IllegalArgumentException("miles per unit must not be negative: " + milesPerUnit);
+        }
+        return (from, to) -> {
+            if (!from.hasCoordinates() || !to.hasCoordinates()) {
+                return 0;
+            }
+            double straight = Math.hypot(from.getX() - to.getX(), from.getY() - to.getY());
+            return (int) Math.min(Integer.MAX_VALUE / 2, Math.floor(straight * milesPerUnit));
+        };
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * this class computes many-to-many road distance tables. it runs one dijkstra search per source
+ * that stops once every target is settled, and spreads the sources over a fork-join pool. each
+ * worker thread searches with its own scratch state, so the rows are filled without locking.
+ *
+ * @author Leul Belay
+ */
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class DistanceMatrix {
+
+    /**
+     * this class only has static methods
+     */
+    private DistanceMatrix() {
+    }
+
+    /**
+     * computes the road distance from every source town to every target town. entry [i][j] is the
+     * distance from sources.get(i) to targets.get(j), or Integer.MAX_VALUE if the target cannot be
+     * reached or either town is not in the graph
+     *
+     * @param s the snapshot to search
+     * @param sources the towns to start from
+     * @param targets the towns to measure to
+     * @param pool the pool to run the searches on
+     * @return the distance matrix with one row per source
+     */
+    public static int[][] compute(GraphSnapshot s, List<Town> sources, List<Town> targets, ForkJoinPool pool) {
+        int[] sourceIds = ids(s, sources);
+        int[] targetIds = ids(s, targets);
+        boolean[] isTarget = new boolean[s.vertexCount()];
+        int targetCount = 0;
+        for (int id : targetIds) {
+            if (id >= 0 && !isTarget[id]) {
+                isTarget[id] = true;
+                targetCount++;
+            }
+        }
+        int[][] matrix = new int[sourceIds.length][targetIds.length];
+        pool.invoke(new RowTask(s, sourceIds, targetIds, isTarget, targetCount, matrix, 0, sourceIds.length));
+        return matrix;
+    }
+
+    /**
+     * looks up the snapshot id of each town
+     *
+     * @param s the snapshot
+     * @param towns the towns
+     * @return the ids, -1 for towns that are not in the snapshot
+     */
+    private static int[] ids(GraphSnapshot s, List<Town> towns) {
+        int[] ids = new int[towns.size()];
+        int i = 0;
+        for (Town town : towns) {
+            ids[i++] = s.idOf(town);
+        }
+        return ids;
+    }
+
+    /**
+     * this class fills a range of matrix rows, splitting the range in half until it is one row
+     */
+    private static final class RowTask extends RecursiveAction {
+
+        /**
+         * the serialization version, fork-join tasks are serializable but these are never serialized
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the snapshot to search
+         */
+        private final GraphSnapshot s;
+
+        /**
+         * the snapshot id of each source, -1 if absent
+         */
+        private final int[] sourceIds;
+
+        /**
+         * the snapshot id of each target, -1 if absent
+         */
+        private final int[] targetIds;
+
+        /**
+         * marks the ids of the targets
+         */
+        private final boolean[] isTarget;
+
+        /**
+         * the number of distinct targets in the snapshot
+         */
+        private final int targetCount;
+
+        /**
+         * the matrix being filled
+         */
+        private final int[][] matrix;
+
+        /**
+         * the first row of this task
+         */
+        private final int from;
+
+        /**
+         * one past the last row of this task
+         */
+        private final int to;
+
+        /**
+         * creates a task for the rows [from, to)
+         *
+         * @param s the snapshot to search
+         * @param sourceIds the snapshot id of each source
+         * @param targetIds the snapshot id of each target
+         * @param isTarget marks the ids of the targets
+         * @param targetCount the number of distinct targets in the snapshot
+         * @param matrix the matrix to fill
+         * @param from the first row
+         * @param to one past the last row
+         */
+        RowTask(GraphSnapshot s, int[] sourceIds, int[] targetIds, boolean[] isTarget, int targetCount,
+                int[][] matrix, int from, int to) {
+            this.s = s;
+            this.sourceIds = sourceIds;
+            this.targetIds = targetIds;
+            this.isTarget = isTarget;
+            this.targetCount = targetCount;
+            this.matrix = matrix;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                RowTask left = new RowTask(s, sourceIds, targetIds, isTarget, targetCount, matrix, from, middle);
+                left.fork();
+                new RowTask(s, sourceIds, targetIds, isTarget, targetCount, matrix, middle, to).compute();
+                left.join();
+                return;
+            }
+            for (int row = from; row < to; row++) {
+                fillRow(row);
+            }
+        }
+
+        /**
+         * runs the search for one source and copies the target distances into its row
+         *
+         * @param row the row to fill
+         */
+        private void fillRow(int row) {
+            int[] distances = matrix[row];
+            int sourceId = sourceIds[row];
+            if (sourceId < 0 || targetCount == 0) {
+                Arrays.fill(distances, SearchState.UNREACHED);
+                return;
+            }
+            SearchState state = SearchState.forCurrentThread(s.vertexCount());
+            RouteSearch.dijkstra(s, sourceId, isTarget, targetCount, state);
+            for (int j = 0; j < targetIds.length; j++) {
+                int targetId = targetIds[j];
+                distances[j] = (targetId < 0) ? SearchState.UNREACHED : state.distance(targetId);
+            }
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/**
+ * this class represents a shortest path tree from one source town that a graph keeps up to date
+ * while road weights change. a weight change only repairs the part of the tree it can affect, in
+ * the style of ramalingam and reps: a shorter road relaxes outward from its two towns, and a
+ * longer tree road re-roots the subtree hanging below it and runs dijkstra inside that subtree
+ * only. any other change to the graph makes the tree rebuild itself in full on its next query.
+ * updates and queries must not run at the same time as changes to the graph.
+ *
+ * @author Leul Belay
+ */
+import java.util.Arrays;
+
+public class DynamicShortestPathTree {
+
+    /**
+     * the graph the tree belongs to
+     */
+    private final Graph graph;
+
+    /**
+     * the source town
+     */
+    private final Town source;
+
+    /**
+     * the snapshot the arrays belong to, or null before the first build
+     */
+    private GraphSnapshot snapshot;
+
+    /**
+     * distances holds the distance from the source to each town, or SearchState.UNREACHED
+     */
+    private int[] distances;
+
+    /**
+     * previousvertices holds the parent of each town in the tree, or -1
+     */
+    private int[] previousVertices;
+
+    /**
+     * previousroads holds the road id from each town's parent, or -1
+     */
+    private int[] previousRoads;
+
+    /**
+     * the frontier heap of the repair searches
+     */
+    private IndexedMinHeap heap;
+
+    /**
+     * marks the towns of the subtree being repaired
+     */
+    private boolean[] affected;
+
+    /**
+     * the number of towns whose distance was recomputed by weight changes, for measuring how much
+     * work the repairs save
+     */
+    private long repairedCount;
+
+    /**
+     * the number of times the whole tree was computed
+     */
+    private long rebuildCount;
+
+    /**
+     * creates a tree for a source town, only called by the graph that maintains it
+     *
+     * @param graph the graph
+     * @param source the source town
+     */
+    DynamicShortestPathTree(Graph graph, Town source) {
+        this.graph = graph;
+        this.source = source;
+    }
+
+    /**
+     * returns the source town of the tree
+     *
+     * @return the source town
+     */
+    public Town source() {
+        return source;
+    }
+
+    /**
+     * returns the shortest distance from the source to a town
+     *
+     * @param destination the town
+     * @return the distance, or SearchState.UNREACHED if the town cannot be reached or is not in the graph
+     */
+    public int distanceTo(Town destination) {
+        GraphSnapshot s = current();
+        int id = s.idOf(destination);
+        return (id < 0) ? SearchState.UNREACHED : distances[id];
+    }
+
+    /**
+     * builds the shortest route from the source to a destination
+     *
+     * @param destination the end town
+     * @return the route, or PathResult.NOT_FOUND if the town cannot be reached or is not in the graph
+     */
+    public PathResult routeTo(Town destination) {
+        GraphSnapshot s = current();
+        int target = s.idOf(destination);
+        if (target < 0 || distances[target] == SearchState.UNREACHED) {
+            return PathResult.NOT_FOUND;
+        }
+        int hops = 0;
+        for (int v = target; previousVertices[v] >= 0; v = previousVertices[v]) {
+            hops++;
+        }
+        int[] towns = new int[hops + 1];
+        int[] roads = new int[hops];
+        int current = target;
+        for (int i = hops; i > 0; i--) {
+            towns[i] = current;
+            roads[i - 1] = previousRoads[current];
+            current = previousVertices[current];
+        }
+        towns[0] = current;
+        return PathResult.of(s, towns, roads);
+    }
+
+    /**
+     * returns how many town distances weight changes have recomputed so far
+     *
+     * @return the repaired town count
+     */
+    public long repairedCount() {
+        return repairedCount;
+    }
+
+    /**
+     * returns how many times the whole tree was computed, counting the first build
+     *
+     * @return the rebuild count
+     */
+    public long rebuildCount() {
+        return rebuildCount;
+    }
+
+    /**
+     * stops the graph from updating this tree
+     */
+    public void close() {
+        graph.releaseTree(this);
+    }
+
+    /**
+     * returns the snapshot the arrays match, rebuilding them if the graph changed in a way the
+     * repairs do not cover
+     *
+     * @return the current snapshot
+     */
+    private GraphSnapshot current() {
+        GraphSnapshot s = graph.snapshot();
+        if (s != snapshot) {
+            rebuild(s);
+        }
+        return s;
+    }
+
+    /**
+     * rebuilds a tree that was built on an older snapshot, so the weight change the graph is about
+     * to make can be repaired on it. a tree that was never queried is left to build on its first query
+     *
+     * @param s the current snapshot
+     */
+    void catchUp(GraphSnapshot s) {
+        if (snapshot != null && snapshot != s) {
+            rebuild(s);
+        }
+    }
+
+    /**
+     * computes the whole tree with dijkstra's algorithm
+     *
+     * @param s the snapshot to search
+     */
+    private void rebuild(GraphSnapshot s) {
+        rebuildCount++;
+        int vertexCount = s.vertexCount();
+        distances = new int[vertexCount];
+        previousVertices = new int[vertexCount];
+        previousRoads = new int[vertexCount];
+        heap = new IndexedMinHeap(vertexCount);
+        affected = new boolean[vertexCount];
+        Arrays.fill(distances, SearchState.UNREACHED);
+        Arrays.fill(previousVertices, -1);
+        Arrays.fill(previousRoads, -1);
+        snapshot = s;
+        int sourceId = s.idOf(source);
+        if (sourceId < 0) {
+            return;
+        }
+        SearchState state = SearchState.forCurrentThread(vertexCount);
+        RouteSearch.dijkstra(s, sourceId, -1, state);
+        for (int v = 0; v < vertexCount; v++) {
+            distances[v] = state.distance(v);
+            previousVertices[v] = state.previousVertex(v);
+            previousRoads[v] = state.previousRoad(v);
+        }
+    }
+
+    /**
+     * repairs the tree after one road's weight changed, called by the graph
+     *
+     * @param before the snapshot before the change
+     * @param after the snapshot after the change, with the same towns and road ids
+     * @param roadId the id of the changed road
+     * @param oldWeight the weight before the change
+     * @param newWeight the weight after the change
+     */
+    void weightChanged(GraphSnapshot before, GraphSnapshot after, int roadId, int oldWeight, int newWeight) {
+        if (snapshot != before) {
+            return;
+        }
+        snapshot = after;
+        Road road = after.road(roadId);
+        int u = after.idOf(road.getSource());
+        int v = after.idOf(road.getDestination());
+        if (u == v || oldWeight == newWeight) {
+            return;
+        }
+        if (newWeight < oldWeight) {
+            relax(u, v, roadId, newWeight);
+            relax(v, u, roadId, newWeight);
+            propagate(false);
+        } else if (previousRoads[v] == roadId && previousVertices[v] == u) {
+            repairSubtree(v);
+        } else if (previousRoads[u] == roadId && previousVertices[u] == v) {
+            repairSubtree(u);
+        }
+    }
+
+    /**
+     * lowers the distance of a town if the road from another town gives a shorter path
+     *
+     * @param from the town the road is taken from
+     * @param to the town to improve
+     * @param roadId the road
+     * @param weight the road's distance
+     */
+    private void relax(int from, int to, int roadId, int weight) {
+        if (distances[from] == SearchState.UNREACHED) {
+            return;
+        }
+        int candidate = distances[from] + weight;
+        if (candidate < distances[to]) {
+            distances[to] = candidate;
+            previousVertices[to] = from;
+            previousRoads[to] = roadId;
+            heap.insertOrDecrease(to, candidate);
+        }
+    }
+
+    /**
+     * runs dijkstra's algorithm from the towns in the heap, improving only distances that get
+     * shorter. with insideonly set the search stays inside the marked subtree
+     *
+     * @param insideOnly whether to relax only towns of the marked subtree
+     */
+    private void propagate(boolean insideOnly) {
+        GraphSnapshot s = snapshot;
+        while (!heap.isEmpty()) {
+            int current = heap.poll();
+            repairedCount++;
+            for (int e = s.firstEdge(current), end = s.endEdge(current); e < end; e++) {
+                int neighbor = s.target(e);
+                if (!insideOnly || affected[neighbor]) {
+                    relax(current, neighbor, s.roadId(e), s.weight(e));
+                }
+            }
+        }
+    }
+
+    /**
+     * recomputes the distances of the subtree below a town whose tree road got longer. the
+     * subtree is found by following parent links downward, each of its towns starts from its best
+     * road into the rest of the tree, and dijkstra then runs inside the subtree only
+     *
+     * @param root the top town of the subtree
+     */
+    private void repairSubtree(int root) {
+        GraphSnapshot s = snapshot;
+        int[] subtree = new int[16];
+        int size = 0;
+        subtree[size++] = root;
+        affected[root] = true;
+        for (int i = 0; i < size; i++) {
+            int current = subtree[i];
+            for (int e = s.firstEdge(current), end = s.endEdge(current); e < end; e++) {
+                int child = s.target(e);
+                if (!affected[child] && previousVertices[child] == current && previousRoads[child] == s.roadId(e)) {
+                    affected[child] = true;
+                    if (size == subtree.length) {
+                        subtree = Arrays.copyOf(subtree, size * 2);
+                    }
+                    subtree[size++] = child;
+                }
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            int x = subtree[i];
+            distances[x] = SearchState.UNREACHED;
+            previousVertices[x] = -1;
+            previousRoads[x] = -1;
+        }
+        for (int i = 0; i < size; i++) {
+            int x = subtree[i];
+            for (int e = s.firstEdge(x), end = s.endEdge(x); e < end; e++) {
+                int neighbor = s.target(e);
+                if (!affected[neighbor]) {
+                    relax(neighbor, x, s.roadId(e), s.weight(e));
+                }
+            }
+        }
+        propagate(true);
+        for (int i = 0; i < size; i++) {
+            affected[subtree[i]] = false;
+        }
+    }
+}
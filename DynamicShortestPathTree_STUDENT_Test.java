@@ -0,0 +1,107 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DynamicShortestPathTree_STUDENT_Test {
+    private Graph graph;
+    private Town[] town;
+    private List<Town[]> roads;
+
+    @Before
+    public void setUp() throws Exception {
+        graph = new Graph();
+        town = new Town[40];
+        roads = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < town.length; i++) {
+            town[i] = new Town("Stop_" + i);
+            graph.addVertex(town[i]);
+        }
+        for (int i = 1; i < town.length; i++) {
+            addRoad(town[i], town[random.nextInt(i)], 1 + random.nextInt(20));
+        }
+        for (int i = 0; i < 40; i++) {
+            Town a = town[random.nextInt(town.length)];
+            Town b = town[random.nextInt(town.length)];
+            if (!a.equals(b) && !graph.containsEdge(a, b)) {
+                addRoad(a, b, 1 + random.nextInt(20));
+            }
+        }
+    }
+
+    private void addRoad(Town a, Town b, int weight) {
+        graph.addEdge(a, b, weight, "Link_" + roads.size());
+        roads.add(new Town[] {a, b});
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        graph = null;
+        town = null;
+        roads = null;
+    }
+
+    @Test
+    public void testMatchesFreshSearchAfterWeightChanges() {
+        DynamicShortestPathTree tree = graph.maintainTree(town[0]);
+        assertEquals(0, tree.distanceTo(town[0]));
+        Random random = new Random(11);
+        for (int step = 0; step < 300; step++) {
+            Town[] road = roads.get(random.nextInt(roads.size()));
+            assertNotNull(graph.setEdgeWeight(road[0], road[1], 1 + random.nextInt(30)));
+            for (Town t : town) {
+                assertEquals("step " + step + " " + t, graph.distance(town[0], t), tree.distanceTo(t));
+            }
+            PathResult route = tree.routeTo(town[step % town.length]);
+            assertEquals(tree.distanceTo(town[step % town.length]), route.totalDistance());
+        }
+        assertTrue(tree.repairedCount() > 0);
+        tree.close();
+    }
+
+    @Test
+    public void testSetEdgeWeight() {
+        Town[] road = roads.get(0);
+        Road before = graph.getEdge(road[0], road[1]);
+        Road after = graph.setEdgeWeight(road[1], road[0], 99);
+        assertEquals(99, after.getWeight());
+        assertEquals(before.getName(), after.getName());
+        assertSame(after, graph.getEdge(road[0], road[1]));
+        assertTrue(graph.edgesOf(road[0]).contains(after));
+        assertEquals(roads.size(), graph.edgeSet().size());
+        assertNull(graph.setEdgeWeight(town[0], new Town("Stop_99"), 1));
+    }
+
+    @Test
+    public void testRepairsWeightChangeAfterOtherChange() {
+        DynamicShortestPathTree tree = graph.maintainTree(town[0]);
+        tree.distanceTo(town[5]);
+        graph.addVertex(new Town("Stop_40"));
+        Town[] road = roads.get(0);
+        graph.setEdgeWeight(road[0], road[1], 0);
+        long rebuilds = tree.rebuildCount();
+        assertTrue(tree.repairedCount() > 0);
+        for (Town t : town) {
+            assertEquals(graph.distance(town[0], t), tree.distanceTo(t));
+        }
+        assertEquals(rebuilds, tree.rebuildCount());
+        tree.close();
+    }
+
+    @Test
+    public void testRebuildsAfterOtherChanges() {
+        DynamicShortestPathTree tree = graph.maintainTree(town[0]);
+        tree.distanceTo(town[5]);
+        Town extra = new Town("Stop_40");
+        graph.addVertex(extra);
+        graph.addEdge(extra, town[5], 2, "Link_extra");
+        assertEquals(graph.distance(town[0], town[5]) + 2, tree.distanceTo(extra));
+        graph.removeVertex(town[5]);
+        assertEquals(Integer.MAX_VALUE, tree.distanceTo(extra));
+        assertFalse(tree.routeTo(extra).isFound());
+    }
+}
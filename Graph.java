@@ -5,33 +5,156 @@
  * @author Leul Belay
  */
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 public class Graph implements GraphInterface<Town, Road> {
 
     /**
-     * adjacency map stores each town along with a set of roads that connect it to other towns
+     * towns holds the town of each dense id, null for the ids of removed towns
      */
-    private Map<Town, Set<Road>> adjacencyMap;
+    private Town[] towns;
 
     /**
-     * distances holds the shortest known distance from the source town to each other town
+     * incidence holds the set of roads that connect each town, by id
      */
-    private Map<Town, Integer> distances;
+    private ArrayList<Set<Road>> incidence;
 
     /**
-     * previousvertices holds the town that comes before the current town on the shortest path
+     * idsbyname maps each town name to its id, so a town can be found by name without scanning
+     * or creating a lookup object
      */
-    private Map<Town, Town> previousVertices;
+    private Map<String, Integer> idsByName;
 
     /**
-     * creates an empty graph using a hashmap-based adjacency map
+     * freeids holds the ids of removed towns, the next town added takes the last one
+     */
+    private int[] freeIds;
+
+    /**
+     * the number of ids in freeids
+     */
+    private int freeCount;
+
+    /**
+     * one past the highest id handed out so far
+     */
+    private int idLimit;
+
+    /**
+     * the number of towns in the graph
+     */
+    private int townCount;
+
+    /**
+     * edgeindex maps each unordered pair of towns to a road that connects them, so edge lookup
+     * does not have to scan the roads of a town
+     */
+    private Map<TownPair, Road> edgeIndex;
+
+    /**
+     * parallelroads holds the extra roads of a town pair that already has a road in edgeindex.
+     * it is only filled when two towns are joined by more than one road
+     */
+    private Map<TownPair, Deque<Road>> parallelRoads;
+
+    /**
+     * snapshot is the csr copy of this graph that routing runs against. it is dropped on every
+     * change to the graph and rebuilt the next time a route is needed, or in versioned mode
+     * copied from the previous one and published by the change itself. it is volatile so a
+     * snapshot built by one thread is safely seen by the others
+     */
+    private volatile GraphSnapshot snapshot;
+
+    /**
+     * versioned is true while every change publishes a new snapshot and all reads go to the
+     * published snapshot, so readers never touch the structures writers change
+     */
+    private volatile boolean versioned;
+
+    /**
+     * changedids holds the ids of the towns added or whose roads changed since the last snapshot
+     * was published, only filled in versioned mode
+     */
+    private int[] changedIds = new int[16];
+
+    /**
+     * the number of ids in changedids
+     */
+    private int changedCount;
+
+    /**
+     * townsremoved is set when a town was removed since the last snapshot was published, which
+     * the next snapshot has to be built from scratch for
+     */
+    private boolean townsRemoved;
+
+    /**
+     * pathcache holds the shortest path trees of recently used source towns
+     */
+    private final ShortestPathCache pathCache;
+
+    /**
+     * routingmode is the search shortestpath uses
+     */
+    private volatile RoutingMode routingMode = RoutingMode.CACHED_TREE;
+
+    /**
+     * heuristic guides shortestpath in the a* routing mode
+     */
+    private volatile DistanceHeuristic heuristic = DistanceHeuristic.NONE;
+
+    /**
+     * landmarkcount is the number of landmarks picked when the landmark tables are built
+     */
+    private volatile int landmarkCount = LandmarkIndex.DEFAULT_LANDMARK_COUNT;
+
+    /**
+     * landmarks holds the alt landmark tables, rebuilt when they belong to an older snapshot
+     */
+    private volatile LandmarkIndex landmarks;
+
+    /**
+     * contractionhierarchy holds the contraction hierarchy, rebuilt when it belongs to an older snapshot
+     */
+    private volatile ContractionHierarchy contractionHierarchy;
+
+    /**
+     * metrics counts the work and latency of route, distance and shortest path tree queries
+     */
+    private final QueryMetrics metrics = new QueryMetrics();
+
+    /**
+     * maintainedtrees holds the shortest path trees that weight changes repair in place
+     */
+    private final List<DynamicShortestPathTree> maintainedTrees = new CopyOnWriteArrayList<>();
+
+    /**
+     * creates an empty graph
      */
     public Graph() {
-        adjacencyMap = new HashMap<>();
+        this(ShortestPathCache.DEFAULT_MAX_SIZE);
     }
 
     /**
-     * returns the road that directly connects the sourcevertex to the destinationvertex
+     * creates an empty graph that caches the shortest path trees of up to pathcachesize source towns
+     *
+     * @param pathCacheSize the most trees to cache, 0 turns the cache off
+     */
+    public Graph(int pathCacheSize) {
+        pathCache = new ShortestPathCache(pathCacheSize);
+        towns = new Town[16];
+        incidence = new ArrayList<>();
+        idsByName = new HashMap<>();
+        freeIds = new int[16];
+        edgeIndex = new HashMap<>();
+        parallelRoads = new HashMap<>();
+    }
+
+    /**
+     * returns the road that directly connects the sourcevertex to the destinationvertex.
+     * this is a single lookup in the edge index, or in versioned mode in the copy of it the
+     * published snapshot carries
      *
      * @param sourceVertex the starting town
      * @param destinationVertex the ending town
@@ -39,34 +162,90 @@ public class Graph implements GraphInterface<Town, Road> {
      */
     @Override
     public Road getEdge(Town sourceVertex, Town destinationVertex) {
-        Set<Road> edges = adjacencyMap.get(sourceVertex);
-        if (edges != null) {
-            for (Road road : edges) {
-                if (road.contains(destinationVertex)) {
-                    return road;
-                }
-            }
+        if (versioned) {
+            GraphSnapshot s = snapshot;
+            int source = s.idOf(sourceVertex);
+            int destination = s.idOf(destinationVertex);
+            return (source < 0 || destination < 0) ? null : s.roadBetween(source, destination);
         }
-        return null;
+        return indexedEdge(sourceVertex, destinationVertex);
+    }
+
+    /**
+     * returns the road the edge index holds for two towns, for writers
+     *
+     * @param sourceVertex the starting town
+     * @param destinationVertex the ending town
+     * @return the road connecting them or null if none
+     */
+    private Road indexedEdge(Town sourceVertex, Town destinationVertex) {
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0) {
+            return null;
+        }
+        return edgeIndex.get(new TownPair(source, destination));
     }
 
     /**
-     * creates a new road between two towns already in the graph
+     * creates a new road between two towns already in the graph. the road joins the graph's own
+     * instances of the two towns
      *
      * @param sourceVertex the starting town
      * @param destinationVertex the ending town
      * @param weight the distance of the road
      * @param description the road name
-     * @return the created road or null if it cannot be created
+     * @return the created road, or null if a road equal to it already joins the towns
+     * @throws IllegalArgumentException if either town is not in the graph
      */
     @Override
-    public Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
-        Road newRoad = new Road(sourceVertex, destinationVertex, weight, description);
-        adjacencyMap.get(sourceVertex).add(newRoad);
-        adjacencyMap.get(destinationVertex).add(newRoad);
+    public synchronized Road addEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0) {
+            throw new IllegalArgumentException("both towns must be in the graph: " + sourceVertex + ", " + destinationVertex);
+        }
+        Road newRoad = link(source, destination, weight, description);
+        if (newRoad != null) {
+            invalidate();
+        }
         return newRoad;
     }
 
+    /**
+     * creates a road between two towns without dropping the derived structures
+     *
+     * @param source the id of the starting town
+     * @param destination the id of the ending town
+     * @param weight the distance of the road
+     * @param description the road name
+     * @return the created road, or null if a road equal to it already joins the towns
+     */
+    private Road link(int source, int destination, int weight, String description) {
+        Road newRoad = new Road(towns[source], towns[destination], weight, description);
+        return attach(newRoad, source, destination) ? newRoad : null;
+    }
+
+    /**
+     * adds a road to the road sets of its towns and, only if both sets took it, to the edge index.
+     * a road that road.equals treats as equal to one already in the sets is left out of both, so
+     * the edge index never holds a road the sets do not
+     *
+     * @param road the road
+     * @param source the id of the road's source town
+     * @param destination the id of the road's destination town
+     * @return true if the road was added
+     */
+    private boolean attach(Road road, int source, int destination) {
+        if (!addToRoadSets(road, source, destination)) {
+            return false;
+        }
+        indexRoad(road, source, destination);
+        changed(source);
+        changed(destination);
+        return true;
+    }
+
     /**
      * adds a new town to the graph
      *
@@ -74,14 +253,48 @@ public class Graph implements GraphInterface<Town, Road> {
      * @return true if the town is added, false if it already exists
      */
     @Override
-    public boolean addVertex(Town v) {
-        if (adjacencyMap.containsKey(v)) {
+    public synchronized boolean addVertex(Town v) {
+        if (idOf(v) >= 0) {
             return false;
         }
-        adjacencyMap.put(v, new HashSet<>());
+        register(v);
+        invalidate();
         return true;
     }
 
+    /**
+     * adds many towns and roads in one step. towns of the roads that are not in the graph yet are
+     * added too. the snapshot and other derived structures are dropped once at the end instead
+     * of once per road
+     *
+     * @param towns the towns to add, towns already in the graph are skipped
+     * @param roads the roads to add, roads equal to one already in the graph are skipped
+     * @return the number of roads added
+     */
+    public synchronized int addAll(Collection<Town> towns, Collection<Road> roads) {
+        int added = 0;
+        for (Town t : towns) {
+            if (idOf(t) < 0) {
+                register(t);
+            }
+        }
+        for (Road r : roads) {
+            int source = idOf(r.getSource());
+            if (source < 0) {
+                source = register(r.getSource());
+            }
+            int destination = idOf(r.getDestination());
+            if (destination < 0) {
+                destination = register(r.getDestination());
+            }
+            if (attach(r, source, destination)) {
+                added++;
+            }
+        }
+        invalidate();
+        return added;
+    }
+
     /**
      * checks if there is an edge (road) between two towns
      *
@@ -102,7 +315,7 @@ public class Graph implements GraphInterface<Town, Road> {
      */
     @Override
     public boolean containsVertex(Town v) {
-        return adjacencyMap.containsKey(v);
+        return versioned ? snapshot.idOf(v) >= 0 : idOf(v) >= 0;
     }
 
     /**
@@ -112,9 +325,19 @@ public class Graph implements GraphInterface<Town, Road> {
      */
     @Override
     public Set<Road> edgeSet() {
+        if (versioned) {
+            GraphSnapshot s = snapshot;
+            Set<Road> allEdges = new HashSet<>(s.roadCount() * 2);
+            for (int i = 0; i < s.roadCount(); i++) {
+                allEdges.add(s.road(i));
+            }
+            return allEdges;
+        }
         Set<Road> allEdges = new HashSet<>();
-        for (Set<Road> edges : adjacencyMap.values()) {
-            allEdges.addAll(edges);
+        for (Set<Road> edges : incidence) {
+            if (edges != null) {
+                allEdges.addAll(edges);
+            }
         }
         return allEdges;
     }
@@ -123,11 +346,24 @@ public class Graph implements GraphInterface<Town, Road> {
      * returns a set of all roads that touch the given town
      *
      * @param vertex the town
-     * @return set of roads connected to that town
+     * @return set of roads connected to that town, or null if the town is not in the graph
      */
     @Override
     public Set<Road> edgesOf(Town vertex) {
-        return adjacencyMap.get(vertex);
+        if (versioned) {
+            GraphSnapshot s = snapshot;
+            int id = s.idOf(vertex);
+            if (id < 0) {
+                return null;
+            }
+            Set<Road> roads = new HashSet<>();
+            for (int e = s.firstEdge(id); e < s.endEdge(id); e++) {
+                roads.add(s.road(s.roadId(e)));
+            }
+            return roads;
+        }
+        int id = idOf(vertex);
+        return (id < 0) ? null : incidence.get(id);
     }
 
     /**
@@ -140,34 +376,332 @@ public class Graph implements GraphInterface<Town, Road> {
      * @return the removed road or null if not found
      */
     @Override
-    public Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
-        Road road = getEdge(sourceVertex, destinationVertex);
+    public synchronized Road removeEdge(Town sourceVertex, Town destinationVertex, int weight, String description) {
+        Road road = indexedEdge(sourceVertex, destinationVertex);
         if (road != null) {
-            adjacencyMap.get(sourceVertex).remove(road);
-            adjacencyMap.get(destinationVertex).remove(road);
+            unlink(road, idOf(sourceVertex), idOf(destinationVertex));
+            invalidate();
             return road;
         }
         return null;
     }
 
     /**
-     * removes a town and all roads connected to it
+     * removes a road without dropping the derived structures
+     *
+     * @param road the road
+     * @param source the id of one of its towns
+     * @param destination the id of the other town
+     */
+    private void unlink(Road road, int source, int destination) {
+        incidence.get(source).remove(road);
+        incidence.get(destination).remove(road);
+        unindexRoad(road, source, destination);
+        changed(source);
+        changed(destination);
+    }
+
+    /**
+     * applies the changes of a batch in the order they were added, under the graph's lock. towns
+     * are looked up by name in the graph's own index, so no town objects are created except for
+     * new towns, and the snapshot, path cache, landmarks and contraction hierarchy are dropped, or
+     * in versioned mode the snapshot republished, once at the end instead of once per change
+     *
+     * @param changes the changes, read through graphbatch.change
+     * @param count the number of changes
+     * @return the number of changes that took effect
+     */
+    synchronized int apply(GraphBatch.Change[] changes, int count) {
+        int applied = 0;
+        for (int i = 0; i < count; i++) {
+            GraphBatch.Change change = changes[i];
+            Integer first = idsByName.get(change.first);
+            Integer second = (change.second == null) ? null : idsByName.get(change.second);
+            switch (change.kind) {
+                case ADD_TOWN:
+                    if (first == null) {
+                        register(new Town(change.first));
+                        applied++;
+                    }
+                    break;
+                case DELETE_TOWN:
+                    if (first != null && detach(towns[first])) {
+                        applied++;
+                    }
+                    break;
+                case ADD_ROAD:
+                    if (first != null && second != null && link(first, second, change.weight, change.roadName) != null) {
+                        applied++;
+                    }
+                    break;
+                case DELETE_ROAD:
+                    if (first != null && second != null) {
+                        Road road = edgeIndex.get(new TownPair(first, second));
+                        if (road != null && road.getName().equals(change.roadName)) {
+                            unlink(road, first, second);
+                            applied++;
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("unknown change " + change.kind);
+            }
+        }
+        if (applied > 0) {
+            invalidate();
+        }
+        return applied;
+    }
+
+    /**
+     * removes a town and all roads connected to it. only the town's own roads and the road sets
+     * of its neighbours are touched
      *
      * @param v the town to remove
      * @return true if the town was removed, false otherwise
      */
     @Override
-    public boolean removeVertex(Town v) {
-        if (!adjacencyMap.containsKey(v)) {
+    public synchronized boolean removeVertex(Town v) {
+        if (!detach(v)) {
             return false;
         }
-        adjacencyMap.remove(v);
-        for (Set<Road> roads : adjacencyMap.values()) {
-            roads.removeIf(r -> r.contains(v));
+        invalidate();
+        return true;
+    }
+
+    /**
+     * removes many towns and all roads connected to them. the snapshot and other derived
+     * structures are dropped once at the end instead of once per town
+     *
+     * @param vertices the towns to remove, towns not in the graph are skipped
+     * @return the number of towns removed
+     */
+    public synchronized int removeVertices(Collection<Town> vertices) {
+        int removed = 0;
+        for (Town v : vertices) {
+            if (detach(v)) {
+                removed++;
+            }
         }
+        if (removed > 0) {
+            invalidate();
+        }
+        return removed;
+    }
+
+    /**
+     * removes a town and its roads without dropping the derived structures
+     *
+     * @param v the town to remove
+     * @return true if the town was in the graph
+     */
+    private boolean detach(Town v) {
+        int id = idOf(v);
+        if (id < 0) {
+            return false;
+        }
+        for (Road r : incidence.get(id)) {
+            int source = idOf(r.getSource());
+            int other = (source == id) ? idOf(r.getDestination()) : source;
+            if (other != id) {
+                incidence.get(other).remove(r);
+            }
+            TownPair pair = new TownPair(id, other);
+            edgeIndex.remove(pair);
+            parallelRoads.remove(pair);
+        }
+        unregister(id);
+        townsRemoved = true;
         return true;
     }
 
+    /**
+     * changes the distance of the road that directly connects two towns. the road is replaced by a
+     * new road with the same towns and name, so routes already handed out keep their old roads.
+     * the snapshot is patched instead of rebuilt, maintained shortest path trees repair only the
+     * part the change affects, and the structures that depend on every distance (cached trees,
+     * landmarks and the contraction hierarchy) are dropped. if an earlier change dropped the
+     * snapshot, it is built before the swap, and trees built on an older snapshot are rebuilt
+     * first, so the change is still repaired in place rather than leaving every tree to rebuild
+     * on its next query
+     *
+     * @param sourceVertex one town of the road
+     * @param destinationVertex the other town of the road
+     * @param weight the new distance
+     * @return the new road, or null if the towns are not directly connected
+     */
+    public synchronized Road setEdgeWeight(Town sourceVertex, Town destinationVertex, int weight) {
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0) {
+            return null;
+        }
+        TownPair pair = new TownPair(source, destination);
+        Road old = edgeIndex.get(pair);
+        if (old == null) {
+            return null;
+        }
+        if (!maintainedTrees.isEmpty()) {
+            GraphSnapshot current = snapshot();
+            for (DynamicShortestPathTree tree : maintainedTrees) {
+                tree.catchUp(current);
+            }
+        }
+        Road replacement = new Road(old.getSource(), old.getDestination(), weight, old.getName());
+        incidence.get(source).remove(old);
+        incidence.get(destination).remove(old);
+        if (!addToRoadSets(replacement, source, destination)) {
+            addToRoadSets(old, source, destination);
+            return null;
+        }
+        edgeIndex.put(pair, replacement);
+
+        GraphSnapshot before = snapshot;
+        GraphSnapshot after = null;
+        int roadId = (before == null) ? -1 : before.roadIdOf(old);
+        if (roadId >= 0) {
+            after = before.withRoad(roadId, replacement);
+        }
+        landmarks = null;
+        contractionHierarchy = null;
+        pathCache.invalidate();
+        snapshot = (after == null && versioned) ? new GraphSnapshot(this, true) : after;
+        if (after != null) {
+            for (DynamicShortestPathTree tree : maintainedTrees) {
+                tree.weightChanged(before, after, roadId, old.getWeight(), weight);
+            }
+        }
+        return replacement;
+    }
+
+    /**
+     * adds a road to the road sets of both its towns without touching the edge index
+     *
+     * @param road the road
+     * @param source the id of the road's source town
+     * @param destination the id of the road's destination town
+     * @return true if both sets took the road, false if neither holds it afterwards
+     */
+    private boolean addToRoadSets(Road road, int source, int destination) {
+        if (!incidence.get(source).add(road)) {
+            return false;
+        }
+        if (source != destination && !incidence.get(destination).add(road)) {
+            incidence.get(source).remove(road);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * creates a shortest path tree from a source town that this graph keeps up to date as road
+     * weights change. call close on the tree once it is no longer needed
+     *
+     * @param sourceVertex the town to start from
+     * @return the maintained tree
+     */
+    public DynamicShortestPathTree maintainTree(Town sourceVertex) {
+        DynamicShortestPathTree tree = new DynamicShortestPathTree(this, sourceVertex);
+        maintainedTrees.add(tree);
+        return tree;
+    }
+
+    /**
+     * stops updating a maintained tree
+     *
+     * @param tree the tree
+     */
+    void releaseTree(DynamicShortestPathTree tree) {
+        maintainedTrees.remove(tree);
+    }
+
+    /**
+     * returns the town in the graph with the given name. this is a single hash lookup and always
+     * returns the same instance for a name while the town is in the graph
+     *
+     * @param name the town name
+     * @return the town, or null if no town has that name
+     */
+    public Town town(String name) {
+        if (versioned) {
+            GraphSnapshot s = snapshot;
+            int id = s.idOf(name);
+            return (id < 0) ? null : s.town(id);
+        }
+        Integer id = idsByName.get(name);
+        return (id == null) ? null : towns[id];
+    }
+
+    /**
+     * returns the dense id of a town. ids run from 0 and the id of a removed town is handed to
+     * the next town added. the graph's own instance of a town carries its id, so looking it up
+     * needs no hashing; any other equal town is found through the name index
+     *
+     * @param v the town
+     * @return the id, or -1 if the town is not in the graph
+     */
+    public int idOf(Town v) {
+        if (v == null) {
+            return -1;
+        }
+        int id = v.getId();
+        if (id >= 0 && id < idLimit && towns[id] == v) {
+            return id;
+        }
+        Integer named = idsByName.get(v.getName());
+        return (named == null) ? -1 : named;
+    }
+
+    /**
+     * returns one past the highest id handed out, so every town id is below it
+     *
+     * @return the id limit
+     */
+    int idLimit() {
+        return idLimit;
+    }
+
+    /**
+     * returns the town with the given id
+     *
+     * @param id the id
+     * @return the town, or null if no town has that id
+     */
+    Town townAt(int id) {
+        return towns[id];
+    }
+
+    /**
+     * returns the roads the edge index holds, one per connected pair of towns. only read under the
+     * graph's lock
+     *
+     * @return the indexed roads
+     */
+    Collection<Road> indexedRoads() {
+        return edgeIndex.values();
+    }
+
+    /**
+     * returns the road the edge index holds for two town ids. only read under the graph's lock
+     *
+     * @param source the id of one town
+     * @param destination the id of the other town
+     * @return the road, or null if the towns are not directly connected
+     */
+    Road indexedRoad(int source, int destination) {
+        return edgeIndex.get(new TownPair(source, destination));
+    }
+
+    /**
+     * returns the roads of the town with the given id
+     *
+     * @param id the id
+     * @return the roads, or null if no town has that id
+     */
+    Set<Road> roadsAt(int id) {
+        return incidence.get(id);
+    }
+
     /**
      * returns a set of all towns in the graph
      *
@@ -175,12 +709,402 @@ public class Graph implements GraphInterface<Town, Road> {
      */
     @Override
     public Set<Town> vertexSet() {
-        return adjacencyMap.keySet();
+        if (versioned) {
+            GraphSnapshot s = snapshot;
+            return new AbstractSet<Town>() {
+                @Override
+                public Iterator<Town> iterator() {
+                    return new Iterator<Town>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < s.vertexCount();
+                        }
+
+                        @Override
+                        public Town next() {
+                            if (next >= s.vertexCount()) {
+                                throw new NoSuchElementException();
+                            }
+                            return s.town(next++);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return s.vertexCount();
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return (o instanceof Town) && s.idOf((Town) o) >= 0;
+                }
+            };
+        }
+        return new AbstractSet<Town>() {
+            @Override
+            public Iterator<Town> iterator() {
+                return new Iterator<Town>() {
+                    private int next = skipRemoved(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < idLimit;
+                    }
+
+                    @Override
+                    public Town next() {
+                        if (next >= idLimit) {
+                            throw new NoSuchElementException();
+                        }
+                        Town town = towns[next];
+                        next = skipRemoved(next + 1);
+                        return town;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return townCount;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return (o instanceof Town) && containsVertex((Town) o);
+            }
+        };
+    }
+
+    /**
+     * finds the first id at or after the given one that belongs to a town
+     *
+     * @param id the id to start at
+     * @return the id, or idlimit if there is none
+     */
+    private int skipRemoved(int id) {
+        while (id < idLimit && towns[id] == null) {
+            id++;
+        }
+        return id;
+    }
+
+    /**
+     * gives a town the next free id without dropping the derived structures
+     *
+     * @param v the town, which must not be in the graph yet
+     * @return the new id
+     */
+    private int register(Town v) {
+        int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+            incidence.set(id, new HashSet<>());
+        } else {
+            id = idLimit++;
+            if (id == towns.length) {
+                towns = Arrays.copyOf(towns, towns.length * 2);
+            }
+            incidence.add(new HashSet<>());
+        }
+        towns[id] = v;
+        idsByName.put(v.getName(), id);
+        v.setId(id);
+        townCount++;
+        changed(id);
+        return id;
+    }
+
+    /**
+     * notes, in versioned mode, that a town was added or its roads changed, so the next snapshot
+     * only lays out that town's roads again
+     *
+     * @param id the id of the town
+     */
+    private void changed(int id) {
+        if (!versioned) {
+            return;
+        }
+        if (changedCount == changedIds.length) {
+            changedIds = Arrays.copyOf(changedIds, changedCount * 2);
+        }
+        changedIds[changedCount++] = id;
+    }
+
+    /**
+     * removes a town from the id tables and puts its id on the free list
+     *
+     * @param id the id of the town
+     */
+    private void unregister(int id) {
+        Town v = towns[id];
+        towns[id] = null;
+        incidence.set(id, null);
+        idsByName.remove(v.getName());
+        if (v.getId() == id) {
+            v.setId(-1);
+        }
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+        townCount--;
+    }
+
+    /**
+     * adds a new road to the edge index. if its towns already have a road, the new one is kept
+     * as a parallel road so getedge keeps returning the first road added
+     *
+     * @param road the road to index
+     * @param source the id of the road's source town
+     * @param destination the id of the road's destination town
+     */
+    private void indexRoad(Road road, int source, int destination) {
+        TownPair pair = new TownPair(source, destination);
+        if (edgeIndex.putIfAbsent(pair, road) != null) {
+            parallelRoads.computeIfAbsent(pair, p -> new ArrayDeque<>()).add(road);
+        }
+    }
+
+    /**
+     * removes a road from the edge index, promoting a parallel road of the same towns if there is one
+     *
+     * @param road the road to remove
+     * @param source the id of the road's source town
+     * @param destination the id of the road's destination town
+     */
+    private void unindexRoad(Road road, int source, int destination) {
+        TownPair pair = new TownPair(source, destination);
+        Deque<Road> parallel = parallelRoads.get(pair);
+        if (edgeIndex.get(pair) == road) {
+            if (parallel == null) {
+                edgeIndex.remove(pair);
+                return;
+            }
+            edgeIndex.put(pair, parallel.poll());
+        } else if (parallel != null) {
+            parallel.remove(road);
+        }
+        if (parallel != null && parallel.isEmpty()) {
+            parallelRoads.remove(pair);
+        }
+    }
+
+    /**
+     * drops everything derived from the current roads: the snapshot and the cached path trees. in
+     * versioned mode the next snapshot is copied from the current one with only the changed towns
+     * laid out again, or built from scratch after a town was removed or when most towns changed
+     */
+    private void invalidate() {
+        landmarks = null;
+        contractionHierarchy = null;
+        pathCache.invalidate();
+        if (versioned) {
+            GraphSnapshot current = snapshot;
+            snapshot = (townsRemoved || changedCount > current.vertexCount() / 2)
+                    ? new GraphSnapshot(this, true)
+                    : current.withChanges(this, changedIds, changedCount);
+        } else {
+            snapshot = null;
+        }
+        changedCount = 0;
+        townsRemoved = false;
+    }
+
+    /**
+     * returns the query metrics of this graph. they are off until setenabled(true) is called
+     *
+     * @return the metrics
+     */
+    public QueryMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * returns the cache of shortest path trees, for reading its hit and miss counts
+     *
+     * @return the path cache
+     */
+    public ShortestPathCache pathCache() {
+        return pathCache;
+    }
+
+    /**
+     * returns the csr snapshot of the graph, building it first if the graph changed since the last one.
+     * the build runs under the graph's lock, so it never copies a graph a writer is halfway through
+     * changing and never publishes a snapshot after a later change has dropped it
+     *
+     * @return the current snapshot
+     */
+    public GraphSnapshot snapshot() {
+        GraphSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = new GraphSnapshot(this);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * returns the search shortestpath uses
+     *
+     * @return the routing mode
+     */
+    public RoutingMode getRoutingMode() {
+        return routingMode;
+    }
+
+    /**
+     * sets the search shortestpath uses
+     *
+     * @param routingMode the routing mode
+     */
+    public void setRoutingMode(RoutingMode routingMode) {
+        this.routingMode = Objects.requireNonNull(routingMode);
+    }
+
+    /**
+     * checks if the graph is in versioned mode
+     *
+     * @return true if changes publish snapshots for lock-free readers
+     */
+    public boolean isVersioned() {
+        return versioned;
+    }
+
+    /**
+     * turns versioned mode on or off. in versioned mode the graph is a multi-version store: every
+     * change is made under the graph's lock and then publishes a new immutable snapshot with one
+     * volatile write. routing, name lookups and the read methods (getedge, containsvertex,
+     * edgesof, edgeset and vertexset) only read the snapshot that was current when they started,
+     * so any number of threads can query without locking while changes are applied, and each
+     * query sees the graph either fully before or fully after a change. adding towns and adding
+     * or removing roads copies the previous snapshot and lays out only the changed towns' roads
+     * again; that is still a block copy of every edge slot, so o(v + e) per change, just a cheap
+     * one. removing a town rebuilds the snapshot from scratch, and setedgeweight patches it in
+     * place. apply many changes through a graphbatch, addall or removevertices to publish once
+     *
+     * @param versioned true to publish a snapshot on every change
+     */
+    public synchronized void setVersioned(boolean versioned) {
+        if (versioned && (snapshot == null || !snapshot.hasRoadIndex())) {
+            snapshot = new GraphSnapshot(this, true);
+        }
+        changedCount = 0;
+        townsRemoved = false;
+        this.versioned = versioned;
+    }
+
+    /**
+     * returns the heuristic used in the a* routing mode
+     *
+     * @return the heuristic
+     */
+    public DistanceHeuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * sets the heuristic used in the a* routing mode. it must never overestimate the road distance
+     *
+     * @param heuristic the heuristic
+     */
+    public void setHeuristic(DistanceHeuristic heuristic) {
+        this.heuristic = Objects.requireNonNull(heuristic);
+    }
+
+    /**
+     * returns the number of landmarks used for the alt landmark tables
+     *
+     * @return the landmark count
+     */
+    public int getLandmarkCount() {
+        return landmarkCount;
+    }
+
+    /**
+     * sets the number of landmarks used for the alt landmark tables. more landmarks take more
+     * memory (one int per town each) but give tighter bounds. the tables are rebuilt on next use
+     *
+     * @param landmarkCount the landmark count, at least 1
+     */
+    public void setLandmarkCount(int landmarkCount) {
+        if (landmarkCount < 1) {
+            throw new IllegalArgumentException("landmark count must be at least 1: " + landmarkCount);
+        }
+        this.landmarkCount = landmarkCount;
+        landmarks = null;
+    }
+
+    /**
+     * returns the alt landmark tables of the current snapshot, building them first if the graph
+     * changed or the landmark count was changed since they were last built
+     *
+     * @return the landmark tables
+     */
+    public LandmarkIndex landmarks() {
+        return landmarks(snapshot());
+    }
+
+    /**
+     * returns the alt landmark tables of exactly the given snapshot, so a search never takes its
+     * bounds from a newer graph than the one it runs on. tables built for a snapshot that is no
+     * longer current are used for this query only and not kept
+     *
+     * @param s the snapshot the search runs on
+     * @return the landmark tables of s
+     */
+    LandmarkIndex landmarks(GraphSnapshot s) {
+        LandmarkIndex current = landmarks;
+        if (current != null && current.snapshot() == s) {
+            return current;
+        }
+        current = new LandmarkIndex(s, landmarkCount);
+        if (snapshot == s) {
+            landmarks = current;
+        }
+        return current;
+    }
+
+    /**
+     * builds the alt landmark tables of the current snapshot now, so the first alt query does not pay for it
+     *
+     * @return the new landmark tables
+     */
+    public LandmarkIndex rebuildLandmarks() {
+        LandmarkIndex rebuilt = new LandmarkIndex(snapshot(), landmarkCount);
+        landmarks = rebuilt;
+        return rebuilt;
+    }
+
+    /**
+     * returns the contraction hierarchy of the current snapshot, building it first if the graph
+     * changed since it was last built. building takes far longer than one query, so it only pays
+     * off on graphs that are queried many times between changes
+     *
+     * @return the contraction hierarchy
+     */
+    public ContractionHierarchy contractionHierarchy() {
+        GraphSnapshot s = snapshot();
+        ContractionHierarchy current = contractionHierarchy;
+        if (current == null || current.snapshot() != s) {
+            current = new ContractionHierarchy(s);
+            contractionHierarchy = current;
+        }
+        return current;
     }
 
     /**
      * builds an arraylist of roads that represents the shortest path
-     * between sourcevertex and destinationvertex using dijkstra's algorithm
+     * between sourcevertex and destinationvertex using dijkstra's algorithm.
+     * the strings are formatted from the route that route returns
      *
      * @param sourceVertex the start town
      * @param destinationVertex the end town
@@ -188,61 +1112,280 @@ public class Graph implements GraphInterface<Town, Road> {
      */
     @Override
     public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
-        dijkstraShortestPath(sourceVertex);
+        return route(sourceVertex, destinationVertex).toList();
+    }
+
+    /**
+     * finds the shortest route between two towns without formatting it.
+     * how the search runs depends on the routing mode: the cached tree mode keeps the full
+     * shortest path tree of recent sources, the point to point modes stop as soon as the
+     * destination is settled. searches run on the calling thread's own scratch state, so any
+     * number of threads may call this at the same time as long as nobody changes the graph meanwhile
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return the route, or PathResult.NOT_FOUND if the towns are not connected or not in the graph
+     */
+    public PathResult route(Town sourceVertex, Town destinationVertex) {
+        QueryMetrics.Sample sample = metrics.begin();
+        if (sample == null) {
+            return findRoute(sourceVertex, destinationVertex);
+        }
+        PathResult result = findRoute(sourceVertex, destinationVertex);
+        metrics.end(sample, "route", sourceVertex, destinationVertex);
+        return result;
+    }
+
+    /**
+     * finds the shortest route between two towns with the search of the routing mode
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return the route, or PathResult.NOT_FOUND if the towns are not connected or not in the graph
+     */
+    private PathResult findRoute(Town sourceVertex, Town destinationVertex) {
+        RoutingMode mode = routingMode;
+        if (mode == RoutingMode.CACHED_TREE) {
+            ShortestPathTree tree = findTree(sourceVertex);
+            return (tree == null) ? PathResult.NOT_FOUND : tree.routeTo(destinationVertex);
+        }
+        if (mode == RoutingMode.CONTRACTION_HIERARCHY) {
+            return contractionHierarchy().route(sourceVertex, destinationVertex);
+        }
+
+        GraphSnapshot s = snapshot();
+        int sourceId = s.idOf(sourceVertex);
+        int targetId = s.idOf(destinationVertex);
+        if (sourceId < 0 || targetId < 0) {
+            return PathResult.NOT_FOUND;
+        }
+        SearchState forward = SearchState.forCurrentThread(s.vertexCount());
+        if (mode == RoutingMode.BIDIRECTIONAL) {
+            SearchState backward = SearchState.reverseForCurrentThread(s.vertexCount());
+            int meeting = RouteSearch.bidirectional(s, sourceId, targetId, forward, backward);
+            return RouteSearch.path(s, forward, backward, meeting);
+        }
+        if (mode == RoutingMode.ASTAR) {
+            RouteSearch.aStar(s, sourceId, targetId, heuristic, forward);
+        } else if (mode == RoutingMode.ALT) {
+            RouteSearch.aStar(s, sourceId, targetId, landmarks(s), forward);
+        } else {
+            RouteSearch.dijkstra(s, sourceId, targetId, forward);
+        }
+        return RouteSearch.path(s, forward, targetId);
+    }
 
-        ArrayList<String> path = new ArrayList<>();
-        Town current = destinationVertex;
+    /**
+     * returns the road distance between two towns without building the path. a cached shortest
+     * path tree of the source answers it directly; otherwise the search for the routing mode runs
+     * on the calling thread's scratch state and stops as soon as the destination is settled
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return the distance in miles, or SearchState.UNREACHED if the towns are not connected or not in the graph
+     */
+    public int distance(Town sourceVertex, Town destinationVertex) {
+        QueryMetrics.Sample sample = metrics.begin();
+        if (sample == null) {
+            return findDistance(sourceVertex, destinationVertex);
+        }
+        int result = findDistance(sourceVertex, destinationVertex);
+        metrics.end(sample, "distance", sourceVertex, destinationVertex);
+        return result;
+    }
 
-        while (current != null && !current.equals(sourceVertex)) {
-            Town previous = previousVertices.get(current);
-            if (previous == null) {
-                break;
+    /**
+     * returns the road distance between two towns with the search of the routing mode
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return the distance in miles, or SearchState.UNREACHED if the towns are not connected or not in the graph
+     */
+    private int findDistance(Town sourceVertex, Town destinationVertex) {
+        RoutingMode mode = routingMode;
+        if (mode == RoutingMode.CONTRACTION_HIERARCHY) {
+            return contractionHierarchy().distance(sourceVertex, destinationVertex);
+        }
+        GraphSnapshot s = snapshot();
+        if (mode == RoutingMode.CACHED_TREE) {
+            ShortestPathTree tree = pathCache.get(sourceVertex, s);
+            if (tree != null) {
+                return tree.distanceTo(destinationVertex);
             }
-            Road road = getEdge(previous, current);
-            path.add(0, previous.getName() + " via " + road.getName() + " to "
-                    + current.getName() + " " + road.getWeight() + " mi");
-            current = previous;
         }
-        return path;
+        int sourceId = s.idOf(sourceVertex);
+        int targetId = s.idOf(destinationVertex);
+        if (sourceId < 0 || targetId < 0) {
+            return SearchState.UNREACHED;
+        }
+        SearchState forward = SearchState.forCurrentThread(s.vertexCount());
+        if (mode == RoutingMode.BIDIRECTIONAL) {
+            SearchState backward = SearchState.reverseForCurrentThread(s.vertexCount());
+            int meeting = RouteSearch.bidirectional(s, sourceId, targetId, forward, backward);
+            return (meeting < 0) ? SearchState.UNREACHED : forward.distance(meeting) + backward.distance(meeting);
+        }
+        if (mode == RoutingMode.ASTAR) {
+            return RouteSearch.aStar(s, sourceId, targetId, heuristic, forward);
+        }
+        if (mode == RoutingMode.ALT) {
+            return RouteSearch.aStar(s, sourceId, targetId, landmarks(s), forward);
+        }
+        return RouteSearch.distance(s, sourceId, targetId, forward);
+    }
+
+    /**
+     * finds every town whose road distance from a source is at most the budget, sorted by
+     * distance. the search stops expanding at the budget, so it only does work proportional to
+     * the area it reaches
+     *
+     * @param sourceVertex the town to start from
+     * @param budget the largest distance to include, in miles
+     * @return the reachable towns and their distances, empty if the source is not in the graph or the budget is negative
+     */
+    public ReachableTowns reachableWithin(Town sourceVertex, int budget) {
+        GraphSnapshot s = snapshot();
+        int sourceId = s.idOf(sourceVertex);
+        if (sourceId < 0 || budget < 0) {
+            return new ReachableTowns(s, budget, new int[0], new int[0], 0);
+        }
+        return ReachableTowns.search(s, sourceId, budget, SearchState.forCurrentThread(s.vertexCount()));
+    }
+
+    /**
+     * builds the shortest path between two towns with a* guided by the given heuristic
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @param heuristic a lower bound on the road distance that never overestimates it
+     * @return arraylist of road strings in the format "town1 via roadName to town2 distance mi"
+     */
+    public ArrayList<String> aStarShortestPath(Town sourceVertex, Town destinationVertex, DistanceHeuristic heuristic) {
+        GraphSnapshot s = snapshot();
+        int sourceId = s.idOf(sourceVertex);
+        int targetId = s.idOf(destinationVertex);
+        if (sourceId < 0 || targetId < 0) {
+            return new ArrayList<>();
+        }
+        SearchState state = SearchState.forCurrentThread(s.vertexCount());
+        RouteSearch.aStar(s, sourceId, targetId, heuristic, state);
+        return RouteSearch.path(s, state, targetId).toList();
     }
 
     /**
-     * performs dijkstra's shortest path algorithm from a source town
+     * performs dijkstra's shortest path algorithm from a source town and caches the resulting
+     * tree for later shortestpath calls
      *
      * @param sourceVertex the town to start from
      */
     @Override
     public void dijkstraShortestPath(Town sourceVertex) {
-        distances = new HashMap<>();
-        previousVertices = new HashMap<>();
+        shortestPathTree(sourceVertex);
+    }
 
-        for (Town t : adjacencyMap.keySet()) {
-            distances.put(t, Integer.MAX_VALUE);
-            previousVertices.put(t, null);
+    /**
+     * returns the shortest path tree of a source town, from the cache if it has one for the
+     * current snapshot, otherwise by running dijkstra's algorithm and caching the result
+     *
+     * @param sourceVertex the town to start from
+     * @return the tree, or null if the town is not in the graph
+     */
+    public ShortestPathTree shortestPathTree(Town sourceVertex) {
+        QueryMetrics.Sample sample = metrics.begin();
+        if (sample == null) {
+            return findTree(sourceVertex);
         }
-        distances.put(sourceVertex, 0);
+        ShortestPathTree tree = findTree(sourceVertex);
+        metrics.end(sample, "tree", sourceVertex, null);
+        return tree;
+    }
 
-        PriorityQueue<Town> priorityQueue = new PriorityQueue<>(new Comparator<Town>() {
-            @Override
-            public int compare(Town t1, Town t2) {
-                return Integer.compare(distances.get(t1), distances.get(t2));
-            }
-        });
-        priorityQueue.add(sourceVertex);
-
-        while (!priorityQueue.isEmpty()) {
-            Town current = priorityQueue.poll();
-            for (Road r : edgesOf(current)) {
-                Town neighbor = (r.getSource().equals(current)) ? r.getDestination() : r.getSource();
-                int newDist = distances.get(current) + r.getWeight();
-                if (newDist < distances.get(neighbor)) {
-                    distances.put(neighbor, newDist);
-                    previousVertices.put(neighbor, current);
-
-                    priorityQueue.remove(neighbor);
-                    priorityQueue.add(neighbor);
-                }
-            }
+    /**
+     * returns the cached shortest path tree of a source town or computes and caches it
+     *
+     * @param sourceVertex the town to start from
+     * @return the tree, or null if the town is not in the graph
+     */
+    private ShortestPathTree findTree(Town sourceVertex) {
+        GraphSnapshot s = snapshot();
+        ShortestPathTree tree = pathCache.get(sourceVertex, s);
+        if (tree != null) {
+            return tree;
+        }
+        int sourceId = s.idOf(sourceVertex);
+        if (sourceId < 0) {
+            return null;
+        }
+        SearchState state = SearchState.forCurrentThread(s.vertexCount());
+        RouteSearch.dijkstra(s, sourceId, -1, state);
+        tree = new ShortestPathTree(s, sourceId, state);
+        pathCache.put(tree);
+        return tree;
+    }
+
+    /**
+     * computes the road distance from every source town to every target town, spreading the
+     * sources over the common fork-join pool
+     *
+     * @param sources the towns to start from
+     * @param targets the towns to measure to
+     * @return entry [i][j] is the distance from sources.get(i) to targets.get(j), or
+     *         Integer.MAX_VALUE if there is no route or either town is not in the graph
+     */
+    public int[][] distanceMatrix(List<Town> sources, List<Town> targets) {
+        return distanceMatrix(sources, targets, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * computes the road distance from every source town to every target town on the given pool
+     *
+     * @param sources the towns to start from
+     * @param targets the towns to measure to
+     * @param pool the pool to run the searches on
+     * @return entry [i][j] is the distance from sources.get(i) to targets.get(j), or
+     *         Integer.MAX_VALUE if there is no route or either town is not in the graph
+     */
+    public int[][] distanceMatrix(List<Town> sources, List<Town> targets, ForkJoinPool pool) {
+        return DistanceMatrix.compute(snapshot(), sources, targets, pool);
+    }
+
+    /**
+     * this class is the key of the edge index: an unordered pair of town ids, so (a, b) and (b, a)
+     * are equal and hash the same
+     */
+    private static final class TownPair {
+
+        /**
+         * the smaller id of the pair
+         */
+        private final int low;
+
+        /**
+         * the larger id of the pair
+         */
+        private final int high;
+
+        /**
+         * creates a pair of two town ids
+         *
+         * @param first one id
+         * @param second the other id
+         */
+        TownPair(int first, int second) {
+            this.low = Math.min(first, second);
+            this.high = Math.max(first, second);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof TownPair)) return false;
+            TownPair other = (TownPair) obj;
+            return low == other.low && high == other.high;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * low + high;
         }
     }
 }
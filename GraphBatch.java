@@ -0,0 +1,175 @@
+/**
+ * this class collects town and road changes for a town graph and applies them in one pass when
+ * committed. calls only record the change; commit then applies them all under the graph's lock
+ * in the order they were made, and the graph drops or rebuilds its snapshot, path cache,
+ * landmarks and contraction hierarchy once for the whole batch. a batch is not thread-safe and
+ * can be reused after a commit.
+ *
+ * @author Leul Belay
+ */
+import java.util.Arrays;
+
+public final class GraphBatch {
+
+    /**
+     * the kinds of change a batch records
+     */
+    enum Kind {
+        ADD_TOWN, DELETE_TOWN, ADD_ROAD, DELETE_ROAD
+    }
+
+    /**
+     * one recorded change
+     */
+    static final class Change {
+
+        /**
+         * the kind of change
+         */
+        final Kind kind;
+
+        /**
+         * the town name, or the first town of a road
+         */
+        final String first;
+
+        /**
+         * the second town of a road, or null
+         */
+        final String second;
+
+        /**
+         * the distance of an added road
+         */
+        final int weight;
+
+        /**
+         * the road name, or null for town changes
+         */
+        final String roadName;
+
+        /**
+         * creates a change
+         *
+         * @param kind the kind of change
+         * @param first the town name, or the first town of a road
+         * @param second the second town of a road, or null
+         * @param weight the distance of an added road
+         * @param roadName the road name, or null
+         */
+        Change(Kind kind, String first, String second, int weight, String roadName) {
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+            this.weight = weight;
+            this.roadName = roadName;
+        }
+    }
+
+    /**
+     * the graph the changes are for
+     */
+    private final Graph graph;
+
+    /**
+     * changes holds the recorded changes, only the first size entries are used
+     */
+    private Change[] changes = new Change[16];
+
+    /**
+     * the number of recorded changes
+     */
+    private int size;
+
+    /**
+     * creates an empty batch, only called by towngraphmanager.batch
+     *
+     * @param graph the graph the changes are for
+     */
+    GraphBatch(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * records adding a town, skipped if a town with the name exists when the change is applied
+     *
+     * @param name the name of the town
+     * @return this batch
+     */
+    public GraphBatch addTown(String name) {
+        return record(new Change(Kind.ADD_TOWN, name, null, 0, null));
+    }
+
+    /**
+     * records deleting a town and its roads, skipped if the town does not exist when the change
+     * is applied
+     *
+     * @param name the name of the town
+     * @return this batch
+     */
+    public GraphBatch deleteTown(String name) {
+        return record(new Change(Kind.DELETE_TOWN, name, null, 0, null));
+    }
+
+    /**
+     * records adding a road, skipped if either town does not exist when the change is applied.
+     * towns added earlier in the same batch can be used
+     *
+     * @param town1 the first town
+     * @param town2 the second town
+     * @param weight the distance of the road
+     * @param roadName the name of the road
+     * @return this batch
+     */
+    public GraphBatch addRoad(String town1, String town2, int weight, String roadName) {
+        return record(new Change(Kind.ADD_ROAD, town1, town2, weight, roadName));
+    }
+
+    /**
+     * records deleting the road that directly connects two towns, skipped unless that road has
+     * the given name when the change is applied
+     *
+     * @param town1 name of the first town
+     * @param town2 name of the second town
+     * @param roadName the name of the road
+     * @return this batch
+     */
+    public GraphBatch deleteRoadConnection(String town1, String town2, String roadName) {
+        return record(new Change(Kind.DELETE_ROAD, town1, town2, 0, roadName));
+    }
+
+    /**
+     * returns the number of changes recorded since the last commit
+     *
+     * @return the change count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * applies the recorded changes in order and empties the batch
+     *
+     * @return the number of changes that took effect, the others were skipped
+     */
+    public int commit() {
+        int applied = graph.apply(changes, size);
+        Arrays.fill(changes, 0, size, null);
+        size = 0;
+        return applied;
+    }
+
+    /**
+     * adds a change to the batch
+     *
+     * @param change the change
+     * @return this batch
+     */
+    private GraphBatch record(Change change) {
+        if (size == changes.length) {
+            changes = Arrays.copyOf(changes, size * 2);
+        }
+        changes[size++] = change;
+        return this;
+    }
+}
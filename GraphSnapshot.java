@@ -0,0 +1,741 @@
+/**
+ * this class represents an immutable compressed sparse row (csr) snapshot of a graph. towns are
+ * interned to dense ids 0 to vertexCount - 1 and the roads of town v are stored as the edge slots
+ * offsets[v] to offsets[v + 1] - 1 of the primitive arrays targets, weights and roadIds.
+ * every undirected road shows up as one slot at each of its two towns. a snapshot published by a
+ * versioned graph also carries the graph's edge index as an open addressing table of town pairs,
+ * so getedge stays a single lookup and names the same road in both modes.
+ *
+ * @author Leul Belay
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class GraphSnapshot {
+
+    /**
+     * towns holds the town for each dense id
+     */
+    private final Town[] towns;
+
+    /**
+     * idsByGraphId holds the snapshot id of each graph id, or -1 for ids of removed towns. the two
+     * ids are the same unless the graph has unused ids
+     */
+    private final int[] idsByGraphId;
+
+    /**
+     * idsByName maps each town name to its id. it is only built the first time a town that is not
+     * the graph's own instance is looked up
+     */
+    private volatile Map<String, Integer> idsByName;
+
+    /**
+     * roads holds the road for each road id
+     */
+    private final Road[] roads;
+
+    /**
+     * offsets holds where the edge slots of each town start, with one extra entry at the end
+     */
+    private final int[] offsets;
+
+    /**
+     * targets holds the id of the town at the other end of each edge slot
+     */
+    private final int[] targets;
+
+    /**
+     * weights holds the distance of each edge slot
+     */
+    private final int[] weights;
+
+    /**
+     * roadIds holds the road id of each edge slot
+     */
+    private final int[] roadIds;
+
+    /**
+     * pairKeys holds the town pair of each slot of the road index, see pairkey
+     */
+    private final long[] pairKeys;
+
+    /**
+     * pairRoadIds holds the road id of each slot of the road index, -1 for empty slots. null if
+     * the snapshot has no road index
+     */
+    private final int[] pairRoadIds;
+
+    /**
+     * the number of pairs in the road index
+     */
+    private final int pairCount;
+
+    /**
+     * creates a snapshot of the current towns and roads of a graph
+     *
+     * @param graph the graph to copy
+     */
+    public GraphSnapshot(Graph graph) {
+        this(graph, false);
+    }
+
+    /**
+     * creates a snapshot of the current towns and roads of a graph, optionally with a copy of the
+     * graph's edge index. must be called under the graph's lock if indexroads is set
+     *
+     * @param graph the graph to copy
+     * @param indexRoads true to copy the edge index, so roadbetween gives the graph's getedge answer
+     */
+    GraphSnapshot(Graph graph, boolean indexRoads) {
+        int idLimit = graph.idLimit();
+        idsByGraphId = new int[idLimit];
+        Town[] townList = new Town[idLimit];
+        int vertexCount = 0;
+        int edgeSlots = 0;
+        for (int graphId = 0; graphId < idLimit; graphId++) {
+            Town t = graph.townAt(graphId);
+            if (t == null) {
+                idsByGraphId[graphId] = -1;
+                continue;
+            }
+            idsByGraphId[graphId] = vertexCount;
+            townList[vertexCount++] = t;
+            edgeSlots += graph.roadsAt(graphId).size();
+        }
+        towns = (vertexCount == idLimit) ? townList : Arrays.copyOf(townList, vertexCount);
+
+        offsets = new int[vertexCount + 1];
+        targets = new int[edgeSlots];
+        weights = new int[edgeSlots];
+        roadIds = new int[edgeSlots];
+        Map<Road, Integer> roadNumbers = new IdentityHashMap<>(edgeSlots);
+        Road[] roadList = new Road[edgeSlots / 2 + 1];
+
+        int slot = 0;
+        for (int v = 0; v < vertexCount; v++) {
+            offsets[v] = slot;
+            int graphId = graph.idOf(towns[v]);
+            for (Road r : graph.roadsAt(graphId)) {
+                Integer roadId = roadNumbers.get(r);
+                if (roadId == null) {
+                    roadId = roadNumbers.size();
+                    if (roadId == roadList.length) {
+                        roadList = Arrays.copyOf(roadList, roadList.length * 2);
+                    }
+                    roadList[roadId] = r;
+                    roadNumbers.put(r, roadId);
+                }
+                int source = graph.idOf(r.getSource());
+                int other = (source == graphId) ? graph.idOf(r.getDestination()) : source;
+                targets[slot] = idsByGraphId[other];
+                weights[slot] = r.getWeight();
+                roadIds[slot] = roadId;
+                slot++;
+            }
+        }
+        offsets[vertexCount] = slot;
+        roads = Arrays.copyOf(roadList, roadNumbers.size());
+
+        if (!indexRoads) {
+            pairKeys = null;
+            pairRoadIds = null;
+            pairCount = 0;
+            return;
+        }
+        Collection<Road> indexed = graph.indexedRoads();
+        pairCount = indexed.size();
+        int capacity = 4;
+        while (capacity < indexed.size() * 2) {
+            capacity <<= 1;
+        }
+        pairKeys = new long[capacity];
+        pairRoadIds = new int[capacity];
+        Arrays.fill(pairRoadIds, -1);
+        for (Road r : indexed) {
+            int source = idsByGraphId[graph.idOf(r.getSource())];
+            int destination = idsByGraphId[graph.idOf(r.getDestination())];
+            putPair(pairKeys, pairRoadIds, pairKey(source, destination), roadNumbers.get(r));
+        }
+    }
+
+    /**
+     * creates a snapshot that shares the towns and adjacency of another one but has its own roads
+     * and weights
+     *
+     * @param base the snapshot to share with
+     * @param roads the roads for each road id
+     * @param weights the distance of each edge slot
+     */
+    private GraphSnapshot(GraphSnapshot base, Road[] roads, int[] weights) {
+        this(base.towns, base.idsByGraphId, base.idsByName, roads, base.offsets, base.targets, weights,
+                base.roadIds, base.pairKeys, base.pairRoadIds, base.pairCount);
+    }
+
+    /**
+     * creates a snapshot from its arrays
+     *
+     * @param towns the town for each id
+     * @param idsByGraphId the snapshot id of each graph id
+     * @param idsByName the name index, or null to build it on first use
+     * @param roads the road for each road id
+     * @param offsets where the edge slots of each town start
+     * @param targets the target town of each edge slot
+     * @param weights the distance of each edge slot
+     * @param roadIds the road id of each edge slot
+     * @param pairKeys the pair keys of the road index, or null
+     * @param pairRoadIds the road ids of the road index, or null
+     * @param pairCount the number of pairs in the road index
+     */
+    private GraphSnapshot(Town[] towns, int[] idsByGraphId, Map<String, Integer> idsByName, Road[] roads,
+            int[] offsets, int[] targets, int[] weights, int[] roadIds, long[] pairKeys, int[] pairRoadIds,
+            int pairCount) {
+        this.towns = towns;
+        this.idsByGraphId = idsByGraphId;
+        this.idsByName = idsByName;
+        this.roads = roads;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.roadIds = roadIds;
+        this.pairKeys = pairKeys;
+        this.pairRoadIds = pairRoadIds;
+        this.pairCount = pairCount;
+    }
+
+    /**
+     * returns a copy of this snapshot in which one road is swapped for another road between the
+     * same towns, for a change that only touches a road's weight. the towns, ids and adjacency
+     * arrays are shared with this snapshot, only the road and weight arrays are copied
+     *
+     * @param roadId the id of the road to swap
+     * @param replacement the new road
+     * @return the new snapshot
+     */
+    public GraphSnapshot withRoad(int roadId, Road replacement) {
+        Road[] newRoads = roads.clone();
+        newRoads[roadId] = replacement;
+        int[] newWeights = weights.clone();
+        int source = idOf(replacement.getSource());
+        int destination = idOf(replacement.getDestination());
+        for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+            if (roadIds[e] == roadId) {
+                newWeights[e] = replacement.getWeight();
+            }
+        }
+        for (int e = offsets[destination]; e < offsets[destination + 1]; e++) {
+            if (roadIds[e] == roadId) {
+                newWeights[e] = replacement.getWeight();
+            }
+        }
+        return new GraphSnapshot(this, newRoads, newWeights);
+    }
+
+    /**
+     * returns a copy of this snapshot after roads were added or removed and towns were added, for
+     * a versioned graph publishing a change. only the edge slots of the touched towns are laid out
+     * again from the graph. the slots of every other town are block copied, towns and unchanged
+     * roads keep their ids, the towns and name index are shared unless towns were added, and the
+     * road index is patched at the touched pairs. the copy still moves every slot, so it is linear
+     * in the size of the graph, but with array copies instead of a walk over every road set. must
+     * be called under the graph's lock, and only for changes that removed no town
+     *
+     * @param graph the changed graph
+     * @param changedIds the graph ids of the towns that were added or whose roads changed, in any
+     *        order and with repeats
+     * @param changedCount the number of entries of changedids in use
+     * @return the new snapshot
+     */
+    GraphSnapshot withChanges(Graph graph, int[] changedIds, int changedCount) {
+        if (changedCount == 0) {
+            return this;
+        }
+        int[] newIdsByGraphId = idsByGraphId;
+        Town[] newTowns = towns;
+        int vertexCount = towns.length;
+        int[] touched = new int[changedCount];
+        for (int i = 0; i < changedCount; i++) {
+            int graphId = changedIds[i];
+            int id = (graphId < newIdsByGraphId.length) ? newIdsByGraphId[graphId] : -1;
+            if (id < 0) {
+                if (newTowns == towns) {
+                    newIdsByGraphId = Arrays.copyOf(idsByGraphId, Math.max(idsByGraphId.length, graph.idLimit()));
+                    Arrays.fill(newIdsByGraphId, idsByGraphId.length, newIdsByGraphId.length, -1);
+                    newTowns = Arrays.copyOf(towns, towns.length + changedCount);
+                }
+                id = vertexCount++;
+                newIdsByGraphId[graphId] = id;
+                newTowns[id] = graph.townAt(graphId);
+            }
+            touched[i] = id;
+        }
+        Map<String, Integer> byName = idsByName;
+        if (newTowns != towns) {
+            newTowns = Arrays.copyOf(newTowns, vertexCount);
+            if (byName != null) {
+                byName = new HashMap<>(byName);
+                for (int v = towns.length; v < vertexCount; v++) {
+                    byName.put(newTowns[v].getName(), v);
+                }
+            }
+        }
+        Arrays.sort(touched);
+        int touchedCount = 0;
+        for (int i = 0; i < touched.length; i++) {
+            if (touchedCount == 0 || touched[touchedCount - 1] != touched[i]) {
+                touched[touchedCount++] = touched[i];
+            }
+        }
+
+        int[] graphIds = new int[touchedCount];
+        Map<Road, Integer> oldIds = new IdentityHashMap<>();
+        Set<Road> current = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int k = 0; k < touchedCount; k++) {
+            int v = touched[k];
+            graphIds[k] = graph.idOf(newTowns[v]);
+            if (v < towns.length) {
+                for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                    oldIds.put(roads[roadIds[e]], roadIds[e]);
+                }
+            }
+            current.addAll(graph.roadsAt(graphIds[k]));
+        }
+        int[] removed = new int[oldIds.size()];
+        int removedCount = 0;
+        for (Map.Entry<Road, Integer> entry : oldIds.entrySet()) {
+            if (!current.contains(entry.getKey())) {
+                removed[removedCount++] = entry.getValue();
+            }
+        }
+        Arrays.sort(removed, 0, removedCount);
+        List<Road> added = new ArrayList<>();
+        for (Road r : current) {
+            if (!oldIds.containsKey(r)) {
+                added.add(r);
+            }
+        }
+
+        int oldRoadCount = roads.length;
+        int newRoadCount = oldRoadCount - removedCount + added.size();
+        Road[] newRoads = Arrays.copyOf(roads, Math.max(oldRoadCount, newRoadCount));
+        Map<Road, Integer> newIds = new IdentityHashMap<>();
+        int hole = 0;
+        int nextId = oldRoadCount;
+        for (Road r : added) {
+            int id = (hole < removedCount) ? removed[hole++] : nextId++;
+            newRoads[id] = r;
+            newIds.put(r, id);
+        }
+        int[] movedFrom = new int[removedCount - hole];
+        int[] movedTo = new int[removedCount - hole];
+        int movedCount = 0;
+        int tail = oldRoadCount - 1;
+        int lastHole = removedCount - 1;
+        for (int h = hole; h < removedCount && removed[h] < newRoadCount; h++) {
+            while (lastHole >= h && removed[lastHole] == tail) {
+                lastHole--;
+                tail--;
+            }
+            newRoads[removed[h]] = roads[tail];
+            newIds.put(roads[tail], removed[h]);
+            movedFrom[movedCount] = tail;
+            movedTo[movedCount++] = removed[h];
+            tail--;
+        }
+        newRoads = Arrays.copyOf(newRoads, newRoadCount);
+
+        int[] newOffsets = new int[vertexCount + 1];
+        int slot = 0;
+        for (int v = 0, k = 0; v < vertexCount; v++) {
+            newOffsets[v] = slot;
+            if (k < touchedCount && touched[k] == v) {
+                slot += graph.roadsAt(graphIds[k++]).size();
+            } else {
+                slot += offsets[v + 1] - offsets[v];
+            }
+        }
+        newOffsets[vertexCount] = slot;
+        int[] newTargets = new int[slot];
+        int[] newWeights = new int[slot];
+        int[] newRoadIds = new int[slot];
+        int v = 0;
+        int k = 0;
+        while (v < vertexCount) {
+            if (k < touchedCount && touched[k] == v) {
+                int graphId = graphIds[k++];
+                int e = newOffsets[v];
+                for (Road r : graph.roadsAt(graphId)) {
+                    Integer id = newIds.get(r);
+                    int source = graph.idOf(r.getSource());
+                    int other = (source == graphId) ? graph.idOf(r.getDestination()) : source;
+                    newTargets[e] = newIdsByGraphId[other];
+                    newWeights[e] = r.getWeight();
+                    newRoadIds[e] = (id == null) ? oldIds.get(r) : id;
+                    e++;
+                }
+                v++;
+                continue;
+            }
+            int runEnd = (k < touchedCount) ? touched[k] : vertexCount;
+            int from = offsets[v];
+            int length = offsets[runEnd] - from;
+            System.arraycopy(targets, from, newTargets, newOffsets[v], length);
+            System.arraycopy(weights, from, newWeights, newOffsets[v], length);
+            System.arraycopy(roadIds, from, newRoadIds, newOffsets[v], length);
+            v = runEnd;
+        }
+        for (int m = 0; m < movedCount; m++) {
+            Road r = newRoads[movedTo[m]];
+            int[] ends = {newIdsByGraphId[graph.idOf(r.getSource())], newIdsByGraphId[graph.idOf(r.getDestination())]};
+            for (int end : ends) {
+                if (Arrays.binarySearch(touched, 0, touchedCount, end) < 0) {
+                    for (int e = newOffsets[end]; e < newOffsets[end + 1]; e++) {
+                        if (newRoadIds[e] == movedFrom[m]) {
+                            newRoadIds[e] = movedTo[m];
+                        }
+                    }
+                }
+            }
+        }
+
+        if (pairRoadIds == null) {
+            return new GraphSnapshot(newTowns, newIdsByGraphId, byName, newRoads, newOffsets, newTargets, newWeights,
+                    newRoadIds, null, null, 0);
+        }
+        long[] newPairKeys;
+        int[] newPairRoadIds;
+        int capacity = pairKeys.length;
+        while (capacity < (pairCount + added.size()) * 2) {
+            capacity <<= 1;
+        }
+        if (capacity == pairKeys.length) {
+            newPairKeys = pairKeys.clone();
+            newPairRoadIds = pairRoadIds.clone();
+        } else {
+            newPairKeys = new long[capacity];
+            newPairRoadIds = new int[capacity];
+            Arrays.fill(newPairRoadIds, -1);
+            for (int i = 0; i < pairKeys.length; i++) {
+                if (pairRoadIds[i] >= 0) {
+                    putPair(newPairKeys, newPairRoadIds, pairKeys[i], pairRoadIds[i]);
+                }
+            }
+        }
+        int newPairCount = pairCount;
+        for (int m = 0; m < movedCount; m++) {
+            Road r = newRoads[movedTo[m]];
+            long key = pairKey(newIdsByGraphId[graph.idOf(r.getSource())], newIdsByGraphId[graph.idOf(r.getDestination())]);
+            if (getPair(newPairKeys, newPairRoadIds, key) == movedFrom[m]) {
+                putPair(newPairKeys, newPairRoadIds, key, movedTo[m]);
+            }
+        }
+        List<Road> changedRoads = new ArrayList<>(added);
+        for (int i = 0; i < removedCount; i++) {
+            changedRoads.add(roads[removed[i]]);
+        }
+        for (Road r : changedRoads) {
+            int source = graph.idOf(r.getSource());
+            int destination = graph.idOf(r.getDestination());
+            long key = pairKey(newIdsByGraphId[source], newIdsByGraphId[destination]);
+            Road indexed = graph.indexedRoad(source, destination);
+            if (indexed == null) {
+                if (removePair(newPairKeys, newPairRoadIds, key)) {
+                    newPairCount--;
+                }
+            } else {
+                Integer id = newIds.get(indexed);
+                if (putPair(newPairKeys, newPairRoadIds, key, (id == null) ? oldIds.get(indexed) : id)) {
+                    newPairCount++;
+                }
+            }
+        }
+        return new GraphSnapshot(newTowns, newIdsByGraphId, byName, newRoads, newOffsets, newTargets, newWeights,
+                newRoadIds, newPairKeys, newPairRoadIds, newPairCount);
+    }
+
+    /**
+     * finds the id of a road by scanning the edge slots of its source town
+     *
+     * @param road the road
+     * @return the road id, or -1 if the road is not in the snapshot
+     */
+    public int roadIdOf(Road road) {
+        int source = idOf(road.getSource());
+        if (source < 0) {
+            return -1;
+        }
+        for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+            if (roads[roadIds[e]] == road) {
+                return roadIds[e];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * returns the number of towns in the snapshot
+     *
+     * @return the town count
+     */
+    public int vertexCount() {
+        return towns.length;
+    }
+
+    /**
+     * returns the number of distinct roads in the snapshot
+     *
+     * @return the road count
+     */
+    public int roadCount() {
+        return roads.length;
+    }
+
+    /**
+     * returns the number of edge slots, which is twice the road count minus any roads from a town to itself
+     *
+     * @return the edge slot count
+     */
+    public int edgeSlotCount() {
+        return targets.length;
+    }
+
+    /**
+     * returns the dense id of a town
+     *
+     * @param town the town
+     * @return the id of the town or -1 if it is not in the snapshot
+     */
+    public int idOf(Town town) {
+        if (town == null) {
+            return -1;
+        }
+        int graphId = town.getId();
+        if (graphId >= 0 && graphId < idsByGraphId.length) {
+            int id = idsByGraphId[graphId];
+            if (id >= 0 && towns[id] == town) {
+                return id;
+            }
+        }
+        return idOf(town.getName());
+    }
+
+    /**
+     * returns the dense id of the town with the given name
+     *
+     * @param name the town name
+     * @return the id of the town or -1 if no town in the snapshot has that name
+     */
+    public int idOf(String name) {
+        Map<String, Integer> byName = idsByName;
+        if (byName == null) {
+            byName = new HashMap<>(towns.length * 2);
+            for (int v = 0; v < towns.length; v++) {
+                byName.put(towns[v].getName(), v);
+            }
+            idsByName = byName;
+        }
+        Integer id = byName.get(name);
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * returns a road that directly connects two towns. with a road index this is one lookup and
+     * gives the road the graph's edge index held when the snapshot was made; without one the first
+     * town's edge slots are scanned and the road with the lowest id is returned
+     *
+     * @param source the id of one town
+     * @param destination the id of the other town
+     * @return the road between them, or null if they are not directly connected
+     */
+    public Road roadBetween(int source, int destination) {
+        if (pairRoadIds != null) {
+            int roadId = getPair(pairKeys, pairRoadIds, pairKey(source, destination));
+            return (roadId < 0) ? null : roads[roadId];
+        }
+        int best = -1;
+        for (int e = offsets[source]; e < offsets[source + 1]; e++) {
+            if (targets[e] == destination && (best < 0 || roadIds[e] < best)) {
+                best = roadIds[e];
+            }
+        }
+        return (best < 0) ? null : roads[best];
+    }
+
+    /**
+     * checks if the snapshot carries a copy of the graph's edge index
+     *
+     * @return true if roadbetween is a single lookup
+     */
+    boolean hasRoadIndex() {
+        return pairRoadIds != null;
+    }
+
+    /**
+     * returns the key of an unordered pair of town ids in the road index
+     *
+     * @param first one town id
+     * @param second the other town id
+     * @return the smaller id in the high half and the larger in the low half
+     */
+    private static long pairKey(int first, int second) {
+        return ((long) Math.min(first, second) << 32) | Math.max(first, second);
+    }
+
+    /**
+     * returns the slot of the road index a key is looked for first
+     *
+     * @param key the pair key
+     * @param mask the table length minus one
+     * @return the slot
+     */
+    private static int pairSlot(long key, int mask) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /**
+     * returns the road id a road index table holds for a pair
+     *
+     * @param keys the pair keys of the table
+     * @param ids the road ids of the table
+     * @param key the pair key
+     * @return the road id, or -1 if the pair is not in the table
+     */
+    private static int getPair(long[] keys, int[] ids, long key) {
+        int mask = keys.length - 1;
+        for (int i = pairSlot(key, mask); ids[i] >= 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return ids[i];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * puts a pair into a road index table, replacing its road id if the pair is already there
+     *
+     * @param keys the pair keys of the table
+     * @param ids the road ids of the table
+     * @param key the pair key
+     * @param roadId the road id
+     * @return true if the pair was not in the table before
+     */
+    private static boolean putPair(long[] keys, int[] ids, long key, int roadId) {
+        int mask = keys.length - 1;
+        int i = pairSlot(key, mask);
+        while (ids[i] >= 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        boolean added = ids[i] < 0;
+        keys[i] = key;
+        ids[i] = roadId;
+        return added;
+    }
+
+    /**
+     * removes a pair from a road index table, shifting later entries of its probe run back so
+     * lookups never stop at the emptied slot too early
+     *
+     * @param keys the pair keys of the table
+     * @param ids the road ids of the table
+     * @param key the pair key
+     * @return true if the pair was in the table
+     */
+    private static boolean removePair(long[] keys, int[] ids, long key) {
+        int mask = keys.length - 1;
+        int i = pairSlot(key, mask);
+        while (ids[i] >= 0 && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (ids[i] < 0) {
+            return false;
+        }
+        for (int j = (i + 1) & mask; ids[j] >= 0; j = (j + 1) & mask) {
+            int home = pairSlot(keys[j], mask);
+            boolean stays = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                keys[i] = keys[j];
+                ids[i] = ids[j];
+                i = j;
+            }
+        }
+        ids[i] = -1;
+        return true;
+    }
+
+    /**
+     * returns the town with the given id
+     *
+     * @param id the town id
+     * @return the town
+     */
+    public Town town(int id) {
+        return towns[id];
+    }
+
+    /**
+     * returns the road with the given road id
+     *
+     * @param roadId the road id
+     * @return the road
+     */
+    public Road road(int roadId) {
+        return roads[roadId];
+    }
+
+    /**
+     * returns the first edge slot of a town
+     *
+     * @param id the town id
+     * @return the first edge slot
+     */
+    public int firstEdge(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * returns the edge slot just past the last edge slot of a town
+     *
+     * @param id the town id
+     * @return the end edge slot (exclusive)
+     */
+    public int endEdge(int id) {
+        return offsets[id + 1];
+    }
+
+    /**
+     * returns the id of the town at the other end of an edge slot
+     *
+     * @param edge the edge slot
+     * @return the target town id
+     */
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    /**
+     * returns the distance of an edge slot
+     *
+     * @param edge the edge slot
+     * @return the weight
+     */
+    public int weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * returns the road id of an edge slot
+     *
+     * @param edge the edge slot
+     * @return the road id
+     */
+    public int roadId(int edge) {
+        return roadIds[edge];
+    }
+}
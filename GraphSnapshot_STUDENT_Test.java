@@ -0,0 +1,123 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraphSnapshot_STUDENT_Test {
+    private Graph graph;
+    private Town[] town;
+    private GraphSnapshot snapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        graph = new Graph();
+        town = new Town[5];
+        for (int i = 1; i < 5; i++) {
+            town[i] = new Town("Village_" + i);
+            graph.addVertex(town[i]);
+        }
+        graph.addEdge(town[1], town[2], 4, "Lane_1");
+        graph.addEdge(town[1], town[3], 6, "Lane_2");
+        graph.addEdge(town[2], town[3], 1, "Lane_3");
+        snapshot = graph.snapshot();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        graph = null;
+        town = null;
+        snapshot = null;
+    }
+
+    @Test
+    public void testCounts() {
+        assertEquals(4, snapshot.vertexCount());
+        assertEquals(3, snapshot.roadCount());
+    }
+
+    @Test
+    public void testIds() {
+        for (int i = 1; i < 5; i++) {
+            int id = snapshot.idOf(town[i]);
+            assertTrue(id >= 0);
+            assertEquals(town[i], snapshot.town(id));
+        }
+        assertEquals(-1, snapshot.idOf(new Town("Village_9")));
+    }
+
+    @Test
+    public void testAdjacency() {
+        int id = snapshot.idOf(town[1]);
+        Set<String> neighbors = new HashSet<>();
+        int total = 0;
+        for (int e = snapshot.firstEdge(id); e < snapshot.endEdge(id); e++) {
+            neighbors.add(snapshot.town(snapshot.target(e)).getName());
+            total += snapshot.weight(e);
+            assertTrue(snapshot.road(snapshot.roadId(e)).contains(town[1]));
+        }
+        assertEquals(2, neighbors.size());
+        assertTrue(neighbors.contains("Village_2"));
+        assertTrue(neighbors.contains("Village_3"));
+        assertEquals(10, total);
+        int lonely = snapshot.idOf(town[4]);
+        assertEquals(snapshot.firstEdge(lonely), snapshot.endEdge(lonely));
+    }
+
+    @Test
+    public void testRebuiltAfterChange() {
+        assertSame(snapshot, graph.snapshot());
+        graph.addEdge(town[3], town[4], 2, "Lane_4");
+        GraphSnapshot rebuilt = graph.snapshot();
+        assertNotSame(snapshot, rebuilt);
+        assertEquals(4, rebuilt.roadCount());
+        assertEquals(3, snapshot.roadCount());
+    }
+
+    @Test
+    public void testVersionedChangesMatchFreshBuild() {
+        graph.setVersioned(true);
+        Town extra = new Town("Village_5");
+        graph.addVertex(extra);
+        graph.addEdge(extra, town[4], 3, "Lane_4");
+        graph.addEdge(town[4], town[1], 5, "Lane_5");
+        assertMatchesFreshBuild();
+        graph.removeEdge(town[1], town[2], 4, "Lane_1");
+        assertMatchesFreshBuild();
+        graph.removeEdge(town[1], town[3], 6, "Lane_2");
+        graph.addEdge(town[1], town[3], 8, "Lane_6");
+        assertMatchesFreshBuild();
+        assertEquals(4, graph.snapshot().roadCount());
+        assertEquals(8, graph.distance(town[1], town[3]));
+        assertEquals("Lane_6", graph.getEdge(town[3], town[1]).getName());
+        assertNull(graph.getEdge(town[1], town[2]));
+        assertTrue(snapshot.idOf(extra) < 0);
+    }
+
+    private void assertMatchesFreshBuild() {
+        GraphSnapshot published = graph.snapshot();
+        GraphSnapshot fresh = new GraphSnapshot(graph);
+        assertEquals(fresh.vertexCount(), published.vertexCount());
+        assertEquals(fresh.roadCount(), published.roadCount());
+        for (int v = 0; v < published.vertexCount(); v++) {
+            Town t = published.town(v);
+            assertEquals(v, published.idOf(t.getName()));
+            assertEquals(slots(fresh, fresh.idOf(t)), slots(published, v));
+        }
+    }
+
+    private List<String> slots(GraphSnapshot s, int id) {
+        List<String> slots = new ArrayList<>();
+        for (int e = s.firstEdge(id); e < s.endEdge(id); e++) {
+            Road road = s.road(s.roadId(e));
+            assertEquals(road.getWeight(), s.weight(e));
+            slots.add(s.town(s.target(e)).getName() + " " + road.getName() + " " + s.weight(e));
+        }
+        Collections.sort(slots);
+        return slots;
+    }
+}
@@ -1,8 +1,13 @@
 import static org.junit.Assert.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -190,4 +195,372 @@ public class Graph_STUDENT_Test {
             fail("town names are not valid");
         }
     }
+
+    @Test
+    public void testConcurrentShortestPaths() throws Exception {
+        ArrayList<String> expectedA = graph.shortestPath(town[1], town[6]);
+        ArrayList<String> expectedB = graph.shortestPath(town[4], town[2]);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        ArrayList<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final boolean a = (i % 2 == 0);
+            results.add(pool.submit(() -> a
+                    ? expectedA.equals(graph.shortestPath(town[1], town[6]))
+                    : expectedB.equals(graph.shortestPath(town[4], town[2]))));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testEdgeIndexParallelRoads() {
+        graph.addEdge(town[11], town[2], 5, "Street_13");
+        assertEquals("Street_12", graph.getEdge(town[11], town[2]).getName());
+        graph.removeEdge(town[2], town[11], 8, "Street_12");
+        assertEquals("Street_13", graph.getEdge(town[2], town[11]).getName());
+        graph.removeEdge(town[2], town[11], 5, "Street_13");
+        assertFalse(graph.containsEdge(town[2], town[11]));
+    }
+
+    @Test
+    public void testEdgeIndexDuplicateRoad() {
+        assertNull(graph.addEdge(town[1], town[2], 4, "Street_1"));
+        assertEquals(3, graph.getEdge(town[1], town[2]).getWeight());
+        graph.removeEdge(town[1], town[2], 3, "Street_1");
+        assertFalse(graph.containsEdge(town[1], town[2]));
+        assertNull(graph.getEdge(town[2], town[1]));
+        for (Road r : graph.edgesOf(town[1])) {
+            assertFalse(r.contains(town[2]));
+        }
+        assertEquals(11, graph.edgeSet().size());
+    }
+
+    @Test
+    public void testEdgeIndexAfterRemoveVertex() {
+        graph.removeVertex(town[10]);
+        assertFalse(graph.containsEdge(town[8], town[10]));
+        assertFalse(graph.containsEdge(town[11], town[10]));
+        graph.addVertex(town[10]);
+        assertFalse(graph.containsEdge(town[10], town[9]));
+        assertTrue(graph.containsEdge(town[11], town[2]));
+    }
+
+    @Test
+    public void testPathCacheHitsAndInvalidation() {
+        ShortestPathCache cache = ((Graph) graph).pathCache();
+        ArrayList<String> first = graph.shortestPath(town[1], town[11]);
+        long misses = cache.misses();
+        assertEquals(first, graph.shortestPath(town[1], town[11]));
+        graph.shortestPath(town[1], town[6]);
+        assertEquals(2, cache.hits());
+        assertEquals(misses, cache.misses());
+        assertEquals(1, cache.size());
+
+        graph.addEdge(town[1], town[11], 1, "Street_13");
+        assertEquals(0, cache.size());
+        ArrayList<String> path = graph.shortestPath(town[1], town[11]);
+        assertEquals(misses + 1, cache.misses());
+        assertEquals(1, path.size());
+        assertEquals("City_1 via Street_13 to City_11 1 mi", path.get(0).trim());
+    }
+
+    @Test
+    public void testPathCacheEvictsLeastRecentlyUsed() {
+        Graph small = new Graph(2);
+        for (int i = 1; i < 12; i++) {
+            small.addVertex(town[i]);
+        }
+        small.addEdge(town[1], town[2], 3, "Street_1");
+        small.shortestPath(town[1], town[2]);
+        small.shortestPath(town[2], town[1]);
+        small.shortestPath(town[1], town[2]);
+        small.shortestPath(town[3], town[1]);
+        assertEquals(2, small.pathCache().size());
+        long hits = small.pathCache().hits();
+        small.shortestPath(town[1], town[2]);
+        assertEquals(hits + 1, small.pathCache().hits());
+        small.shortestPath(town[2], town[1]);
+        assertEquals(hits + 1, small.pathCache().hits());
+    }
+
+    @Test
+    public void testRoutingModesAgree() {
+        Graph g = (Graph) graph;
+        g.addEdge(town[6], town[4], 30, "Street_13");
+        for (RoutingMode mode : RoutingMode.values()) {
+            g.setRoutingMode(mode);
+            for (int i = 1; i < 12; i++) {
+                for (int j = 1; j < 12; j++) {
+                    g.setRoutingMode(RoutingMode.CACHED_TREE);
+                    ArrayList<String> expected = g.shortestPath(town[i], town[j]);
+                    g.setRoutingMode(mode);
+                    assertEquals(mode + " " + i + "->" + j, totalMiles(expected), totalMiles(g.shortestPath(town[i], town[j])));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBidirectionalPath() {
+        ((Graph) graph).setRoutingMode(RoutingMode.BIDIRECTIONAL);
+        ArrayList<String> path = graph.shortestPath(town[1], town[6]);
+        assertEquals(5, path.size());
+        assertEquals("City_1 via Street_2 to City_3 7 mi", path.get(0).trim());
+        assertEquals("City_9 via Street_7 to City_6 7 mi", path.get(4).trim());
+        graph.addVertex(new Town("City_12"));
+        assertTrue(graph.shortestPath(town[1], new Town("City_12")).isEmpty());
+        assertTrue(graph.shortestPath(town[1], town[1]).isEmpty());
+    }
+
+    private int totalMiles(ArrayList<String> path) {
+        int total = 0;
+        for (String hop : path) {
+            String[] words = hop.trim().split(" ");
+            total += Integer.parseInt(words[words.length - 2]);
+        }
+        return total;
+    }
+
+    @Test
+    public void testAStarWithStraightLineHeuristic() {
+        Graph g = new Graph();
+        Town a = new Town("A", 0, 0), b = new Town("B", 3, 4), c = new Town("C", 6, 8), d = new Town("D", 0, 10);
+        g.addVertex(a);
+        g.addVertex(b);
+        g.addVertex(c);
+        g.addVertex(d);
+        g.addEdge(a, b, 5, "Road_1");
+        g.addEdge(b, c, 6, "Road_2");
+        g.addEdge(a, d, 10, "Road_3");
+        g.addEdge(d, c, 7, "Road_4");
+        ArrayList<String> path = g.aStarShortestPath(a, c, DistanceHeuristic.straightLine(1.0));
+        assertEquals(2, path.size());
+        assertEquals("A via Road_1 to B 5 mi", path.get(0));
+        assertEquals("B via Road_2 to C 6 mi", path.get(1));
+
+        g.setRoutingMode(RoutingMode.ASTAR);
+        g.setHeuristic(DistanceHeuristic.straightLine(1.0));
+        assertEquals(path, g.shortestPath(a, c));
+        assertEquals(0, DistanceHeuristic.straightLine(1.0).estimate(a, new Town("E")));
+    }
+
+    @Test
+    public void testDistanceMatrix() {
+        Graph g = (Graph) graph;
+        g.addVertex(new Town("City_12"));
+        List<Town> all = new ArrayList<>();
+        for (int i = 1; i < 12; i++) {
+            all.add(town[i]);
+        }
+        all.add(new Town("City_12"));
+        all.add(new Town("City_13"));
+        int[][] matrix = g.distanceMatrix(all, all);
+        assertEquals(13, matrix.length);
+        for (int i = 0; i < 11; i++) {
+            for (int j = 0; j < 11; j++) {
+                int expected = (i == j) ? 0 : totalMiles(g.shortestPath(all.get(i), all.get(j)));
+                assertEquals(i + "->" + j, expected, matrix[i][j]);
+            }
+            assertEquals(Integer.MAX_VALUE, matrix[i][11]);
+            assertEquals(Integer.MAX_VALUE, matrix[i][12]);
+        }
+        assertEquals(0, matrix[11][11]);
+        assertEquals(Integer.MAX_VALUE, matrix[12][12]);
+        assertEquals(0, g.distanceMatrix(all, new ArrayList<>())[0].length);
+    }
+
+    @Test
+    public void testDistance() {
+        Graph g = (Graph) graph;
+        g.addVertex(new Town("City_12"));
+        for (RoutingMode mode : RoutingMode.values()) {
+            g.setRoutingMode(mode);
+            assertEquals(mode.toString(), 24, g.distance(town[1], town[6]));
+            assertEquals(mode.toString(), 0, g.distance(town[4], town[4]));
+            assertEquals(mode.toString(), Integer.MAX_VALUE, g.distance(town[1], new Town("City_12")));
+            assertEquals(mode.toString(), Integer.MAX_VALUE, g.distance(town[1], new Town("City_13")));
+        }
+        g.setRoutingMode(RoutingMode.CACHED_TREE);
+        g.dijkstraShortestPath(town[1]);
+        long hits = g.pathCache().hits();
+        assertEquals(11, g.distance(town[1], town[11]));
+        assertEquals(hits + 1, g.pathCache().hits());
+    }
+
+    @Test
+    public void testReachableWithin() {
+        Graph g = (Graph) graph;
+        ReachableTowns reachable = g.reachableWithin(town[1], 11);
+        assertEquals(7, reachable.size());
+        assertEquals(town[1], reachable.town(0));
+        assertEquals(0, reachable.distance(0));
+        for (int i = 1; i < reachable.size(); i++) {
+            assertTrue(reachable.distance(i - 1) <= reachable.distance(i));
+            assertEquals(g.distance(town[1], reachable.town(i)), reachable.distance(i));
+            assertTrue(reachable.distance(i) <= 11);
+        }
+        assertEquals(12, g.reachableWithin(town[1], 1000).size() + 1);
+        assertEquals(1, g.reachableWithin(town[1], 0).size());
+        assertEquals(0, g.reachableWithin(town[1], -1).size());
+        assertEquals(0, g.reachableWithin(new Town("City_13"), 50).size());
+    }
+
+    @Test
+    public void testTownByName() {
+        Graph g = (Graph) graph;
+        assertSame(town[4], g.town("City_4"));
+        assertNull(g.town("City_12"));
+        Town added = new Town("City_12");
+        g.addVertex(added);
+        assertSame(added, g.town("City_12"));
+        assertFalse(g.addVertex(new Town("City_12")));
+        assertSame(added, g.town("City_12"));
+        g.removeVertex(new Town("City_4"));
+        assertNull(g.town("City_4"));
+        Town bulk = new Town("City_13");
+        g.addAll(new ArrayList<>(), Collections.singletonList(new Road(bulk, town[1], 2, "Street_14")));
+        assertSame(bulk, g.town("City_13"));
+    }
+
+    @Test
+    public void testDenseIds() {
+        Graph g = (Graph) graph;
+        boolean[] used = new boolean[11];
+        for (int i = 1; i < 12; i++) {
+            int id = g.idOf(town[i]);
+            assertTrue(id >= 0 && id < 11);
+            assertFalse(used[id]);
+            used[id] = true;
+            assertEquals(id, g.idOf(new Town("City_" + i)));
+        }
+        int removedId = g.idOf(town[7]);
+        g.removeVertex(town[7]);
+        assertEquals(-1, g.idOf(town[7]));
+        assertEquals(10, g.vertexSet().size());
+        assertFalse(g.vertexSet().contains(town[7]));
+        assertEquals(10, g.snapshot().vertexCount());
+        assertEquals(24, g.distance(town[1], town[6]));
+        Town added = new Town("City_12");
+        g.addVertex(added);
+        assertEquals(removedId, g.idOf(added));
+        assertEquals(11, g.vertexSet().size());
+        assertEquals(11, g.snapshot().vertexCount());
+        g.addEdge(added, town[1], 1, "Street_13");
+        assertEquals(1, g.distance(town[1], new Town("City_12")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddEdgeToMissingTown() {
+        graph.addEdge(town[1], new Town("City_12"), 1, "Street_13");
+    }
+
+    @Test
+    public void testRemoveVertexTouchesNeighbours() {
+        Graph g = (Graph) graph;
+        g.addEdge(town[3], town[8], 9, "Street_13");
+        assertTrue(g.removeVertex(town[8]));
+        assertEquals(2, g.edgesOf(town[3]).size());
+        assertTrue(g.edgesOf(town[4]).isEmpty());
+        assertEquals(3, g.edgesOf(town[10]).size());
+        assertFalse(g.containsEdge(town[3], town[8]));
+        assertEquals(9, g.edgeSet().size());
+        assertFalse(g.removeVertex(town[8]));
+    }
+
+    @Test
+    public void testRemoveVertices() {
+        Graph g = (Graph) graph;
+        assertEquals(2, g.removeVertices(Arrays.asList(town[10], town[3], new Town("City_12"))));
+        assertEquals(9, g.vertexSet().size());
+        assertEquals(5, g.edgeSet().size());
+        assertEquals(1, g.edgesOf(town[8]).size());
+        assertTrue(g.shortestPath(town[1], town[6]).isEmpty());
+        assertEquals(0, g.removeVertices(new ArrayList<>()));
+    }
+
+    @Test
+    public void testVersionedReads() {
+        Graph g = (Graph) graph;
+        g.setVersioned(true);
+        assertTrue(g.isVersioned());
+        GraphSnapshot before = g.snapshot();
+        assertEquals("Street_5", g.getEdge(town[3], town[8]).getName());
+        assertSame(town[4], g.town("City_4"));
+
+        g.removeVertex(town[8]);
+        assertNotSame(before, g.snapshot());
+        assertEquals(10, g.snapshot().vertexCount());
+        assertTrue(before.idOf(town[8]) >= 0);
+        assertNull(g.getEdge(town[3], town[8]));
+        assertNull(g.town("City_8"));
+        assertFalse(g.containsVertex(town[8]));
+        assertFalse(g.vertexSet().contains(town[8]));
+        assertEquals(10, g.vertexSet().size());
+        assertEquals(9, g.edgeSet().size());
+        assertEquals(2, g.edgesOf(town[3]).size());
+
+        g.addEdge(town[3], town[4], 1, "Street_13");
+        assertEquals(1, g.distance(town[3], town[4]));
+        assertEquals("Street_13", g.getEdge(town[4], town[3]).getName());
+        g.setEdgeWeight(town[3], town[4], 6);
+        assertEquals(6, g.getEdge(town[3], town[4]).getWeight());
+        assertEquals(6, g.distance(town[3], town[4]));
+    }
+
+    @Test
+    public void testVersionedParallelRoads() {
+        Graph g = (Graph) graph;
+        for (int i = 0; i < 20; i++) {
+            g.addEdge(town[4], town[6], 10 + i, "Ferry_" + i);
+        }
+        g.removeEdge(town[4], town[6], 10, "Ferry_0");
+        String unversioned = g.getEdge(town[6], town[4]).getName();
+        g.setVersioned(true);
+        assertEquals(unversioned, g.getEdge(town[6], town[4]).getName());
+        g.removeEdge(town[4], town[6], 11, unversioned);
+        g.setVersioned(false);
+        String next = g.getEdge(town[4], town[6]).getName();
+        g.setVersioned(true);
+        assertEquals(next, g.getEdge(town[4], town[6]).getName());
+        assertNull(g.getEdge(town[4], town[5]));
+    }
+
+    @Test
+    public void testVersionedConcurrentQueries() throws Exception {
+        Graph g = (Graph) graph;
+        g.setVersioned(true);
+        g.setRoutingMode(RoutingMode.POINT_TO_POINT);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                readers.add(pool.submit(() -> {
+                    int checked = 0;
+                    for (int i = 0; i < 2000; i++) {
+                        int d = g.distance(town[1], town[11]);
+                        ArrayList<String> path = g.shortestPath(town[1], town[11]);
+                        assertTrue(d == 11 || d == 2);
+                        assertTrue(path.size() == 2 || path.size() == 1);
+                        checked++;
+                    }
+                    return checked;
+                }));
+            }
+            Future<?> writer = pool.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    g.addEdge(town[1], town[11], 2, "Shortcut");
+                    g.removeEdge(town[1], town[11], 2, "Shortcut");
+                }
+            });
+            writer.get();
+            for (Future<Integer> reader : readers) {
+                assertEquals(2000, (int) reader.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(11, g.distance(town[1], town[11]));
+    }
 }
@@ -0,0 +1,251 @@
+/**
+ * this class represents an indexed binary min-heap of dense vertex ids (0 to capacity - 1) ordered
+ * by an int key. it keeps the position of every id in the heap so decrease-key runs in O(log n)
+ * instead of the O(n) remove-and-add that java.util.PriorityQueue needs.
+ *
+ * @author Leul Belay
+ */
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class IndexedMinHeap {
+
+    /**
+     * heap holds the ids in heap order, only the first size entries are used
+     */
+    private int[] heap;
+
+    /**
+     * positions holds the index of each id inside heap, or -1 if the id is not in the heap
+     */
+    private int[] positions;
+
+    /**
+     * keys holds the current key of each id in the heap
+     */
+    private int[] keys;
+
+    /**
+     * the number of ids currently in the heap
+     */
+    private int size;
+
+    /**
+     * the number of inserts, key changes and polls since the last clear
+     */
+    private int operationCount;
+
+    /**
+     * creates an empty heap that can hold the ids 0 to capacity - 1
+     *
+     * @param capacity the number of distinct ids the heap can hold
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        positions = new int[capacity];
+        keys = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * returns how many distinct ids this heap can hold
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return positions.length;
+    }
+
+    /**
+     * returns the number of ids in the heap
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * checks if the heap is empty
+     *
+     * @return true if there are no ids in the heap
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * checks if the given id is currently in the heap
+     *
+     * @param id the id to check
+     * @return true if the id is in the heap
+     */
+    public boolean contains(int id) {
+        return positions[id] >= 0;
+    }
+
+    /**
+     * returns the current key of an id in the heap
+     *
+     * @param id the id
+     * @return the key of that id
+     */
+    public int keyOf(int id) {
+        return keys[id];
+    }
+
+    /**
+     * returns the key of the smallest id without removing it
+     *
+     * @return the smallest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int peekKey() {
+        if (size == 0) {
+            throw new NoSuchElementException("heap is empty");
+        }
+        return keys[heap[0]];
+    }
+
+    /**
+     * adds an id with the given key, or lowers its key if it is already in the heap.
+     * a larger key for an id that is already in the heap is ignored.
+     *
+     * @param id the id to add or update
+     * @param key the new key
+     * @return true if the heap changed
+     */
+    public boolean insertOrDecrease(int id, int key) {
+        int position = positions[id];
+        operationCount++;
+        if (position < 0) {
+            keys[id] = key;
+            heap[size] = id;
+            positions[id] = size;
+            siftUp(size++);
+            return true;
+        }
+        if (key < keys[id]) {
+            keys[id] = key;
+            siftUp(position);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * sets the key of an id that is in the heap to any new value, moving it up or down as needed
+     *
+     * @param id the id to update
+     * @param key the new key
+     */
+    public void changeKey(int id, int key) {
+        int position = positions[id];
+        if (position < 0) {
+            throw new NoSuchElementException("id is not in the heap: " + id);
+        }
+        int old = keys[id];
+        keys[id] = key;
+        operationCount++;
+        if (key < old) {
+            siftUp(position);
+        } else if (key > old) {
+            siftDown(position);
+        }
+    }
+
+    /**
+     * removes and returns the id with the smallest key
+     *
+     * @return the id with the smallest key
+     * @throws NoSuchElementException if the heap is empty
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new NoSuchElementException("heap is empty");
+        }
+        int top = heap[0];
+        positions[top] = -1;
+        operationCount++;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * returns the number of inserts, key changes and polls since the heap was created or last
+     * cleared, for the query metrics
+     *
+     * @return the operation count
+     */
+    public int operationCount() {
+        return operationCount;
+    }
+
+    /**
+     * removes every id from the heap and zeroes the operation count. this only touches the ids
+     * that are still in it, so it is cheap after a search that emptied most of the heap
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+        operationCount = 0;
+    }
+
+    /**
+     * moves the id at the given heap index up until its parent has a smaller or equal key
+     *
+     * @param index the heap index to start from
+     */
+    private void siftUp(int index) {
+        int id = heap[index];
+        int key = keys[id];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parent = heap[parentIndex];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[index] = parent;
+            positions[parent] = index;
+            index = parentIndex;
+        }
+        heap[index] = id;
+        positions[id] = index;
+    }
+
+    /**
+     * moves the id at the given heap index down until both children have a larger or equal key
+     *
+     * @param index the heap index to start from
+     */
+    private void siftDown(int index) {
+        int id = heap[index];
+        int key = keys[id];
+        int half = size >>> 1;
+        while (index < half) {
+            int childIndex = 2 * index + 1;
+            int child = heap[childIndex];
+            int rightIndex = childIndex + 1;
+            if (rightIndex < size && keys[heap[rightIndex]] < keys[child]) {
+                childIndex = rightIndex;
+                child = heap[childIndex];
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            heap[index] = child;
+            positions[child] = index;
+            index = childIndex;
+        }
+        heap[index] = id;
+        positions[id] = index;
+    }
+}
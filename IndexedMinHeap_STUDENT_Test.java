@@ -0,0 +1,71 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IndexedMinHeap_STUDENT_Test {
+    private IndexedMinHeap heap;
+
+    @Before
+    public void setUp() throws Exception {
+        heap = new IndexedMinHeap(6);
+        heap.insertOrDecrease(0, 40);
+        heap.insertOrDecrease(1, 10);
+        heap.insertOrDecrease(2, 30);
+        heap.insertOrDecrease(3, 20);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        heap = null;
+    }
+
+    @Test
+    public void testPollOrder() {
+        assertEquals(4, heap.size());
+        assertEquals(1, heap.poll());
+        assertEquals(3, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(0, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testDecreaseKey() {
+        assertTrue(heap.insertOrDecrease(0, 5));
+        assertEquals(5, heap.keyOf(0));
+        assertEquals(5, heap.peekKey());
+        assertEquals(0, heap.poll());
+        assertEquals(1, heap.poll());
+    }
+
+    @Test
+    public void testLargerKeyIgnored() {
+        assertFalse(heap.insertOrDecrease(1, 50));
+        assertEquals(10, heap.keyOf(1));
+        assertEquals(1, heap.poll());
+    }
+
+    @Test
+    public void testContainsAndClear() {
+        assertTrue(heap.contains(2));
+        assertFalse(heap.contains(5));
+        heap.poll();
+        assertFalse(heap.contains(1));
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(0));
+        heap.insertOrDecrease(5, 1);
+        assertEquals(5, heap.poll());
+    }
+
+    @Test
+    public void testChangeKey() {
+        heap.changeKey(1, 35);
+        assertEquals(3, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(1, heap.poll());
+        heap.changeKey(0, 1);
+        assertEquals(0, heap.poll());
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * this class represents the alt (a*, landmarks, triangle inequality) preprocessing of a graph
+ * snapshot. it picks k landmark towns, stores the distance from every landmark to every town in
+ * one flat int array, and uses the triangle inequality to give a* a lower bound on the distance
+ * between any two towns: |d(l, v) - d(l, t)| for the best landmark l.
+ *
+ * @author Leul Belay
+ */
+import java.util.Arrays;
+
+public class LandmarkIndex implements DistanceHeuristic {
+
+    /**
+     * the default number of landmarks
+     */
+    public static final int DEFAULT_LANDMARK_COUNT = 8;
+
+    /**
+     * the snapshot the tables were computed on
+     */
+    private final GraphSnapshot snapshot;
+
+    /**
+     * landmarks holds the town id of each landmark
+     */
+    private final int[] landmarks;
+
+    /**
+     * distances holds the distance from landmark i to town v at index i * vertexcount + v,
+     * or SearchState.UNREACHED if v cannot be reached from the landmark
+     */
+    private final int[] distances;
+
+    /**
+     * builds the landmark tables for a snapshot. landmarks are picked by farthest selection: each
+     * new landmark is the town farthest from the landmarks picked so far, and a town that none of
+     * them can reach counts as farthest so every part of a disconnected graph gets a landmark. a
+     * town is never picked twice, so a graph with fewer towns than landmarkcount gets one landmark
+     * per town
+     *
+     * @param snapshot the snapshot to preprocess
+     * @param landmarkCount the number of landmarks to pick, more landmarks use more memory but give
+     *        tighter bounds, at most one per town is used
+     */
+    public LandmarkIndex(GraphSnapshot snapshot, int landmarkCount) {
+        if (landmarkCount < 1) {
+            throw new IllegalArgumentException("landmark count must be at least 1: " + landmarkCount);
+        }
+        this.snapshot = snapshot;
+        int vertexCount = snapshot.vertexCount();
+        int k = Math.min(landmarkCount, vertexCount);
+        landmarks = new int[k];
+        distances = new int[k * vertexCount];
+
+        int[] nearest = new int[vertexCount];
+        Arrays.fill(nearest, SearchState.UNREACHED);
+        boolean[] picked = new boolean[vertexCount];
+        SearchState state = new SearchState(vertexCount);
+        int next = 0;
+        for (int i = 0; i < k; i++) {
+            landmarks[i] = next;
+            picked[next] = true;
+            state.prepare(vertexCount);
+            RouteSearch.dijkstra(snapshot, next, -1, state);
+            int base = i * vertexCount;
+            int farthest = -1;
+            long farthestDistance = -1;
+            for (int v = 0; v < vertexCount; v++) {
+                int d = state.distance(v);
+                distances[base + v] = d;
+                nearest[v] = Math.min(nearest[v], d);
+                long key = (nearest[v] == SearchState.UNREACHED) ? Long.MAX_VALUE : nearest[v];
+                if (!picked[v] && key > farthestDistance) {
+                    farthestDistance = key;
+                    farthest = v;
+                }
+            }
+            next = farthest;
+        }
+    }
+
+    /**
+     * returns the snapshot the tables were computed on
+     *
+     * @return the snapshot
+     */
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * returns the number of landmarks
+     *
+     * @return the landmark count
+     */
+    public int landmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * returns a landmark town
+     *
+     * @param i the landmark number, 0 to landmarkcount - 1
+     * @return the landmark town
+     */
+    public Town landmark(int i) {
+        return snapshot.town(landmarks[i]);
+    }
+
+    /**
+     * returns a lower bound on the road distance between two towns
+     *
+     * @param from the town the search is at
+     * @param to the destination town
+     * @return the lower bound, or 0 if either town is not in the snapshot
+     */
+    @Override
+    public int estimate(Town from, Town to) {
+        int fromId = snapshot.idOf(from);
+        int toId = snapshot.idOf(to);
+        if (fromId < 0 || toId < 0) {
+            return 0;
+        }
+        return lowerBound(fromId, toId);
+    }
+
+    /**
+     * returns a lower bound on the road distance between two towns of a snapshot, read straight
+     * from the tables when the snapshot is the one they were built on
+     *
+     * @param s the snapshot being searched
+     * @param fromId the id of the town the search is at
+     * @param toId the id of the destination town
+     * @return the lower bound
+     */
+    @Override
+    public int estimate(GraphSnapshot s, int fromId, int toId) {
+        if (s != snapshot) {
+            return estimate(s.town(fromId), s.town(toId));
+        }
+        return lowerBound(fromId, toId);
+    }
+
+    /**
+     * returns the best triangle inequality bound over all landmarks
+     *
+     * @param fromId the id of one town
+     * @param toId the id of the other town
+     * @return the lower bound
+     */
+    private int lowerBound(int fromId, int toId) {
+        int vertexCount = snapshot.vertexCount();
+        int best = 0;
+        for (int base = 0; base < distances.length; base += vertexCount) {
+            int fromDistance = distances[base + fromId];
+            int toDistance = distances[base + toId];
+            if (fromDistance == SearchState.UNREACHED || toDistance == SearchState.UNREACHED) {
+                continue;
+            }
+            int bound = Math.abs(fromDistance - toDistance);
+            if (bound > best) {
+                best = bound;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,104 @@
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LandmarkIndex_STUDENT_Test {
+    private Graph graph;
+    private Town[] town;
+
+    @Before
+    public void setUp() throws Exception {
+        graph = new Graph();
+        town = new Town[13];
+        for (int i = 1; i < 13; i++) {
+            town[i] = new Town("City_" + i);
+            graph.addVertex(town[i]);
+        }
+        graph.addEdge(town[1], town[2], 3, "Street_1");
+        graph.addEdge(town[1], town[3], 7, "Street_2");
+        graph.addEdge(town[1], town[5], 9, "Street_3");
+        graph.addEdge(town[3], town[7], 2, "Street_4");
+        graph.addEdge(town[3], town[8], 4, "Street_5");
+        graph.addEdge(town[4], town[8], 6, "Street_6");
+        graph.addEdge(town[6], town[9], 7, "Street_7");
+        graph.addEdge(town[9], town[10], 4, "Street_8");
+        graph.addEdge(town[8], town[10], 2, "Street_9");
+        graph.addEdge(town[5], town[10], 5, "Street_10");
+        graph.addEdge(town[10], town[11], 3, "Street_11");
+        graph.addEdge(town[2], town[11], 8, "Street_12");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        graph = null;
+        town = null;
+    }
+
+    @Test
+    public void testBoundsNeverOverestimate() {
+        LandmarkIndex index = new LandmarkIndex(graph.snapshot(), 3);
+        assertEquals(3, index.landmarkCount());
+        for (int i = 1; i < 12; i++) {
+            ShortestPathTree tree = graph.shortestPathTree(town[i]);
+            for (int j = 1; j < 12; j++) {
+                assertTrue(index.estimate(town[i], town[j]) <= tree.distanceTo(town[j]));
+            }
+        }
+        assertEquals(0, index.estimate(town[1], new Town("City_99")));
+    }
+
+    @Test
+    public void testLandmarkOnEveryComponent() {
+        LandmarkIndex index = new LandmarkIndex(graph.snapshot(), 2);
+        boolean isolatedPicked = false;
+        for (int i = 0; i < index.landmarkCount(); i++) {
+            isolatedPicked |= index.landmark(i).equals(town[12]);
+        }
+        assertTrue(isolatedPicked);
+    }
+
+    @Test
+    public void testLandmarksAreDistinct() {
+        Graph small = new Graph();
+        Town[] stop = new Town[3];
+        for (int i = 0; i < stop.length; i++) {
+            stop[i] = new Town("Stop_" + i);
+            small.addVertex(stop[i]);
+        }
+        small.addEdge(stop[0], stop[1], 0, "Ramp_1");
+        small.addEdge(stop[1], stop[2], 0, "Ramp_2");
+        LandmarkIndex index = new LandmarkIndex(small.snapshot(), 8);
+        assertEquals(3, index.landmarkCount());
+        for (int i = 0; i < index.landmarkCount(); i++) {
+            for (int j = i + 1; j < index.landmarkCount(); j++) {
+                assertNotEquals(index.landmark(i), index.landmark(j));
+            }
+        }
+    }
+
+    @Test
+    public void testLandmarksMatchSearchSnapshot() {
+        graph.setVersioned(true);
+        GraphSnapshot older = graph.snapshot();
+        assertSame(older, graph.landmarks().snapshot());
+        graph.setEdgeWeight(town[3], town[8], 40);
+        GraphSnapshot newer = graph.snapshot();
+        assertNotSame(older, newer);
+        assertSame(older, graph.landmarks(older).snapshot());
+        assertSame(newer, graph.landmarks().snapshot());
+        assertSame(graph.landmarks(), graph.landmarks(newer));
+    }
+
+    @Test
+    public void testAltRoutingAndRebuild() {
+        graph.setRoutingMode(RoutingMode.ALT);
+        graph.setLandmarkCount(2);
+        assertEquals(3, graph.shortestPath(town[1], town[10]).size());
+        LandmarkIndex first = graph.landmarks();
+        assertSame(first, graph.landmarks());
+        graph.addEdge(town[1], town[10], 1, "Street_13");
+        assertNotSame(first, graph.landmarks());
+        assertEquals("City_1 via Street_13 to City_10 1 mi", graph.shortestPath(town[1], town[10]).get(0));
+    }
+}
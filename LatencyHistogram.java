@@ -0,0 +1,121 @@
+/**
+ * this class represents a concurrent histogram of query latencies in the style of hdrhistogram.
+ * every power of two range of nanoseconds is split into 32 equal buckets, so any recorded value
+ * is reported within about 3% while the whole range up to hours fits in a fixed array of under
+ * two thousand counters. recording is one atomic increment and never allocates.
+ *
+ * @author Leul Belay
+ */
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyHistogram {
+
+    /**
+     * the number of bits of each value kept exactly
+     */
+    private static final int SUB_BUCKET_BITS = 5;
+
+    /**
+     * the number of buckets in each power of two range
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * the number of buckets, enough for any non-negative long
+     */
+    private static final int BUCKET_COUNT = 2 * SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**
+     * counts holds the number of values recorded in each bucket
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * records one value
+     *
+     * @param nanos the latency, negative values count as 0
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * returns the number of recorded values
+     *
+     * @return the count
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * returns the value below which the given share of the recorded values fall. values recorded
+     * while this runs may or may not be included
+     *
+     * @param percentile 0 to 100
+     * @return the highest value of the bucket holding the percentile, or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(BUCKET_COUNT - 1);
+    }
+
+    /**
+     * removes every recorded value
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * returns the bucket of a value. values below 64 get a bucket each; larger values are shifted
+     * so their top six bits pick one of the 32 buckets of their power of two range
+     *
+     * @param value a non-negative value
+     * @return the bucket index
+     */
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * returns the largest value that falls in a bucket
+     *
+     * @param bucket the bucket index
+     * @return the value
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        long top = (bucket - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
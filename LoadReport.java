@@ -0,0 +1,99 @@
+/**
+ * this class represents the outcome of loading a road file: how many lines were read, how many
+ * roads were added, how many lines were skipped as malformed and how long it took.
+ *
+ * @author Leul Belay
+ */
+public class LoadReport {
+
+    /**
+     * the number of lines read
+     */
+    private final long lines;
+
+    /**
+     * the number of roads added to the graph
+     */
+    private final long roads;
+
+    /**
+     * the number of lines skipped because they did not match the format
+     */
+    private final long malformedLines;
+
+    /**
+     * the time the load took in nanoseconds
+     */
+    private final long elapsedNanos;
+
+    /**
+     * creates a report
+     *
+     * @param lines the number of lines read
+     * @param roads the number of roads added
+     * @param malformedLines the number of malformed lines
+     * @param elapsedNanos the time the load took in nanoseconds
+     */
+    public LoadReport(long lines, long roads, long malformedLines, long elapsedNanos) {
+        this.lines = lines;
+        this.roads = roads;
+        this.malformedLines = malformedLines;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * gets the number of lines read
+     *
+     * @return the line count
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * gets the number of roads added
+     *
+     * @return the road count
+     */
+    public long getRoads() {
+        return roads;
+    }
+
+    /**
+     * gets the number of lines skipped because they did not match the format
+     *
+     * @return the malformed line count
+     */
+    public long getMalformedLines() {
+        return malformedLines;
+    }
+
+    /**
+     * gets the time the load took
+     *
+     * @return the elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * gets the load speed
+     *
+     * @return the lines read per second
+     */
+    public double linesPerSecond() {
+        return (elapsedNanos == 0) ? 0 : lines * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * returns a summary in the format "lines lines, roads roads, malformed malformed, rate lines/s"
+     *
+     * @return the summary
+     */
+    @Override
+    public String toString() {
+        return lines + " lines, " + roads + " roads, " + malformedLines + " malformed, "
+                + Math.round(linesPerSecond()) + " lines/s";
+    }
+}
@@ -0,0 +1,463 @@
+/**
+ * this class represents a read-only graph served straight from a memory-mapped binary graph file
+ * written by binarygraphwriter. nothing is parsed or copied when the file is opened: towns, roads
+ * and adjacency are read from the mapped buffers when they are asked for, so only the towns and
+ * roads a caller actually touches are created on the heap. routing runs dijkstra's algorithm
+ * directly over the mapped csr arrays. it only offers queries, so it does not implement the
+ * mutable graphinterface.
+ *
+ * @author Leul Belay
+ */
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+public class MappedGraph {
+
+    /**
+     * the first int of every binary graph file, "TGRF"
+     */
+    public static final int MAGIC = 0x54475246;
+
+    /**
+     * the format version this class reads and binarygraphwriter writes
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * the size of the header: magic, version, town count, road count, edge slot count and the
+     * lengths of the two name byte blocks
+     */
+    static final int HEADER_BYTES = 7 * 4;
+
+    /**
+     * the number of towns
+     */
+    private final int vertexCount;
+
+    /**
+     * the number of roads
+     */
+    private final int roadCount;
+
+    /**
+     * where the name of each town starts in townnamebytes, with one extra entry at the end
+     */
+    private final IntBuffer townNameOffsets;
+
+    /**
+     * where the name of each road starts in roadnamebytes, with one extra entry at the end
+     */
+    private final IntBuffer roadNameOffsets;
+
+    /**
+     * the source town id of each road
+     */
+    private final IntBuffer roadSources;
+
+    /**
+     * the destination town id of each road
+     */
+    private final IntBuffer roadDestinations;
+
+    /**
+     * the distance of each road
+     */
+    private final IntBuffer roadWeights;
+
+    /**
+     * where the edge slots of each town start, with one extra entry at the end
+     */
+    private final IntBuffer offsets;
+
+    /**
+     * the town at the other end of each edge slot
+     */
+    private final IntBuffer targets;
+
+    /**
+     * the distance of each edge slot
+     */
+    private final IntBuffer weights;
+
+    /**
+     * the road id of each edge slot
+     */
+    private final IntBuffer roadIds;
+
+    /**
+     * the utf-8 bytes of all town names, sorted by name
+     */
+    private final ByteBuffer townNameBytes;
+
+    /**
+     * the utf-8 bytes of all road names
+     */
+    private final ByteBuffer roadNameBytes;
+
+    /**
+     * maps a binary graph file and checks its header
+     *
+     * @param file the file written by binarygraphwriter
+     * @throws IOException if the file cannot be read or is not a binary graph file of this version
+     */
+    public MappedGraph(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("not a binary graph file: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("not a binary graph file: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported binary graph version " + buffer.getInt(4) + " in " + file);
+        }
+        vertexCount = buffer.getInt(8);
+        roadCount = buffer.getInt(12);
+        int slotCount = buffer.getInt(16);
+        int townBytes = buffer.getInt(20);
+        int roadBytes = buffer.getInt(24);
+        long expected = HEADER_BYTES + 4L * (2L * vertexCount + 4L * roadCount + 3L * slotCount + 3)
+                + townBytes + roadBytes;
+        if (vertexCount < 0 || roadCount < 0 || slotCount < 0 || expected != buffer.capacity()) {
+            throw new IOException("corrupt binary graph file: " + file);
+        }
+
+        int position = HEADER_BYTES;
+        townNameOffsets = ints(buffer, position, vertexCount + 1);
+        position += 4 * (vertexCount + 1);
+        roadNameOffsets = ints(buffer, position, roadCount + 1);
+        position += 4 * (roadCount + 1);
+        roadSources = ints(buffer, position, roadCount);
+        position += 4 * roadCount;
+        roadDestinations = ints(buffer, position, roadCount);
+        position += 4 * roadCount;
+        roadWeights = ints(buffer, position, roadCount);
+        position += 4 * roadCount;
+        offsets = ints(buffer, position, vertexCount + 1);
+        position += 4 * (vertexCount + 1);
+        targets = ints(buffer, position, slotCount);
+        position += 4 * slotCount;
+        weights = ints(buffer, position, slotCount);
+        position += 4 * slotCount;
+        roadIds = ints(buffer, position, slotCount);
+        position += 4 * slotCount;
+        townNameBytes = buffer.slice(position, townBytes);
+        roadNameBytes = buffer.slice(position + townBytes, roadBytes);
+    }
+
+    /**
+     * returns a view of part of the mapped file as ints
+     *
+     * @param buffer the mapped file
+     * @param position the byte position of the first int
+     * @param count the number of ints
+     * @return the int view
+     */
+    private static IntBuffer ints(ByteBuffer buffer, int position, int count) {
+        return buffer.slice(position, 4 * count).asIntBuffer();
+    }
+
+    /**
+     * returns the number of towns
+     *
+     * @return the town count
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * returns the number of roads
+     *
+     * @return the road count
+     */
+    public int roadCount() {
+        return roadCount;
+    }
+
+    /**
+     * finds the id of a town by binary search over the sorted town names
+     *
+     * @param town the town
+     * @return the id or -1 if the town is not in the file
+     */
+    public int idOf(Town town) {
+        if (town == null) {
+            return -1;
+        }
+        byte[] name = town.getName().getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = vertexCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = compareName(middle, name);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * creates the town with the given id
+     *
+     * @param id the town id
+     * @return a new town object with that name
+     */
+    public Town town(int id) {
+        return new Town(string(townNameBytes, townNameOffsets.get(id), townNameOffsets.get(id + 1)));
+    }
+
+    /**
+     * creates the road with the given road id
+     *
+     * @param roadId the road id
+     * @return a new road object
+     */
+    public Road road(int roadId) {
+        return new Road(town(roadSources.get(roadId)), town(roadDestinations.get(roadId)),
+                roadWeights.get(roadId), roadName(roadId));
+    }
+
+    /**
+     * returns the road that directly connects two towns
+     *
+     * @param sourceVertex the starting town
+     * @param destinationVertex the ending town
+     * @return the road connecting them or null if none
+     */
+    public Road getEdge(Town sourceVertex, Town destinationVertex) {
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0) {
+            return null;
+        }
+        for (int e = offsets.get(source), end = offsets.get(source + 1); e < end; e++) {
+            if (targets.get(e) == destination) {
+                return road(roadIds.get(e));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * checks if there is a road between two towns
+     *
+     * @param sourceVertex one town
+     * @param destinationVertex another town
+     * @return true if a road exists between them
+     */
+    public boolean containsEdge(Town sourceVertex, Town destinationVertex) {
+        return getEdge(sourceVertex, destinationVertex) != null;
+    }
+
+    /**
+     * checks if the file contains the given town
+     *
+     * @param v the town
+     * @return true if the town is found
+     */
+    public boolean containsVertex(Town v) {
+        return idOf(v) >= 0;
+    }
+
+    /**
+     * returns all roads. unlike the other methods this creates every road on the heap
+     *
+     * @return a set of roads
+     */
+    public Set<Road> edgeSet() {
+        Set<Road> roads = new HashSet<>();
+        for (int r = 0; r < roadCount; r++) {
+            roads.add(road(r));
+        }
+        return roads;
+    }
+
+    /**
+     * returns the roads that touch a town, creating only those roads
+     *
+     * @param vertex the town
+     * @return set of roads connected to that town, or null if the town is not in the file
+     */
+    public Set<Road> edgesOf(Town vertex) {
+        int id = idOf(vertex);
+        if (id < 0) {
+            return null;
+        }
+        Set<Road> roads = new HashSet<>();
+        for (int e = offsets.get(id), end = offsets.get(id + 1); e < end; e++) {
+            roads.add(road(roadIds.get(e)));
+        }
+        return roads;
+    }
+
+    /**
+     * returns a read-only view of the towns. towns are created one at a time while iterating and
+     * contains is a binary search, so the view itself holds nothing
+     *
+     * @return set of towns
+     */
+    public Set<Town> vertexSet() {
+        return new AbstractSet<Town>() {
+            @Override
+            public Iterator<Town> iterator() {
+                return new Iterator<Town>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < vertexCount;
+                    }
+
+                    @Override
+                    public Town next() {
+                        if (next >= vertexCount) {
+                            throw new NoSuchElementException();
+                        }
+                        return town(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return vertexCount;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return (o instanceof Town) && idOf((Town) o) >= 0;
+            }
+        };
+    }
+
+    /**
+     * builds the shortest path between two towns with dijkstra's algorithm over the mapped arrays,
+     * stopping as soon as the destination is settled
+     *
+     * @param sourceVertex the start town
+     * @param destinationVertex the end town
+     * @return arraylist of road strings in the format "town1 via roadName to town2 distance mi"
+     */
+    public ArrayList<String> shortestPath(Town sourceVertex, Town destinationVertex) {
+        ArrayList<String> path = new ArrayList<>();
+        int source = idOf(sourceVertex);
+        int destination = idOf(destinationVertex);
+        if (source < 0 || destination < 0) {
+            return path;
+        }
+        SearchState state = SearchState.forCurrentThread(vertexCount);
+        search(source, destination, state);
+        for (int current = destination; state.previousVertex(current) >= 0; current = state.previousVertex(current)) {
+            int previous = state.previousVertex(current);
+            int roadId = state.previousRoad(current);
+            path.add(townName(previous) + " via " + roadName(roadId) + " to " + townName(current) + " "
+                    + roadWeights.get(roadId) + " mi");
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * runs dijkstra's algorithm over the mapped arrays
+     *
+     * @param source the id of the start town
+     * @param target the id of the town to stop at, or -1 for all towns
+     * @param state the cleared state to fill
+     */
+    private void search(int source, int target, SearchState state) {
+        state.update(source, 0, -1, -1);
+        IndexedMinHeap priorityQueue = state.heap();
+        priorityQueue.insertOrDecrease(source, 0);
+        while (!priorityQueue.isEmpty()) {
+            int current = priorityQueue.poll();
+            if (current == target) {
+                return;
+            }
+            int currentDistance = state.distance(current);
+            for (int e = offsets.get(current), end = offsets.get(current + 1); e < end; e++) {
+                int neighbor = targets.get(e);
+                int newDist = currentDistance + weights.get(e);
+                if (newDist < state.distance(neighbor)) {
+                    state.update(neighbor, newDist, current, roadIds.get(e));
+                    priorityQueue.insertOrDecrease(neighbor, newDist);
+                }
+            }
+        }
+    }
+
+    /**
+     * compares the stored name of a town with the given utf-8 bytes, byte by byte as unsigned values
+     *
+     * @param id the town id
+     * @param name the bytes to compare with
+     * @return negative, zero or positive like compareto
+     */
+    private int compareName(int id, byte[] name) {
+        int start = townNameOffsets.get(id);
+        int length = townNameOffsets.get(id + 1) - start;
+        int common = Math.min(length, name.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(townNameBytes.get(start + i) & 0xff, name[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, name.length);
+    }
+
+    /**
+     * decodes the name of a town
+     *
+     * @param id the town id
+     * @return the town name
+     */
+    private String townName(int id) {
+        return string(townNameBytes, townNameOffsets.get(id), townNameOffsets.get(id + 1));
+    }
+
+    /**
+     * decodes the name of a road
+     *
+     * @param roadId the road id
+     * @return the road name
+     */
+    private String roadName(int roadId) {
+        return string(roadNameBytes, roadNameOffsets.get(roadId), roadNameOffsets.get(roadId + 1));
+    }
+
+    /**
+     * decodes utf-8 bytes from a buffer
+     *
+     * @param bytes the buffer
+     * @param from the first byte
+     * @param to one past the last byte
+     * @return the decoded string
+     */
+    private static String string(ByteBuffer bytes, int from, int to) {
+        byte[] data = new byte[to - from];
+        bytes.get(from, data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
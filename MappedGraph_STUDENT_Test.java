@@ -0,0 +1,112 @@
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MappedGraph_STUDENT_Test {
+    private Graph graph;
+    private Town[] town;
+    private File file;
+    private MappedGraph mapped;
+
+    @Before
+    public void setUp() throws Exception {
+        graph = new Graph();
+        town = new Town[7];
+        for (int i = 1; i < 7; i++) {
+            town[i] = new Town("Village_" + i);
+            graph.addVertex(town[i]);
+        }
+        town[0] = new Town("\u00c9tang");
+        graph.addVertex(town[0]);
+        graph.addEdge(town[1], town[2], 4, "Lane_1");
+        graph.addEdge(town[1], town[3], 9, "Lane_2");
+        graph.addEdge(town[2], town[3], 2, "Lane_3");
+        graph.addEdge(town[3], town[4], 3, "Lane_4");
+        graph.addEdge(town[4], town[0], 1, "Rue_\u00e9");
+        file = File.createTempFile("graph", ".bin");
+        BinaryGraphWriter.write(graph, file);
+        mapped = new MappedGraph(file);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        graph = null;
+        town = null;
+        mapped = null;
+        file.delete();
+    }
+
+    @Test
+    public void testCounts() {
+        assertEquals(7, mapped.vertexCount());
+        assertEquals(5, mapped.roadCount());
+        assertEquals(graph.vertexSet(), mapped.vertexSet());
+        assertEquals(graph.edgeSet(), mapped.edgeSet());
+    }
+
+    @Test
+    public void testLookup() {
+        for (int i = 0; i < 7; i++) {
+            assertTrue(mapped.containsVertex(town[i]));
+            assertEquals(town[i], mapped.town(mapped.idOf(town[i])));
+        }
+        assertFalse(mapped.containsVertex(new Town("Village_9")));
+        assertEquals(-1, mapped.idOf(new Town("Aaa")));
+    }
+
+    @Test
+    public void testEdges() {
+        Road road = mapped.getEdge(town[3], town[2]);
+        assertEquals("Lane_3", road.getName());
+        assertEquals(2, road.getWeight());
+        assertTrue(mapped.containsEdge(town[0], town[4]));
+        assertFalse(mapped.containsEdge(town[1], town[4]));
+        assertEquals(graph.edgesOf(town[3]), mapped.edgesOf(town[3]));
+        assertTrue(mapped.edgesOf(town[6]).isEmpty());
+        assertNull(mapped.edgesOf(new Town("Village_9")));
+    }
+
+    @Test
+    public void testShortestPath() {
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 7; j++) {
+                assertEquals(graph.shortestPath(town[i], town[j]), mapped.shortestPath(town[i], town[j]));
+            }
+        }
+        assertEquals("Village_1 via Lane_1 to Village_2 4 mi", mapped.shortestPath(town[1], town[0]).get(0));
+        assertTrue(mapped.shortestPath(town[1], town[6]).isEmpty());
+    }
+
+    @Test
+    public void testBadFile() throws IOException {
+        File other = File.createTempFile("graph", ".bin");
+        try (FileOutputStream out = new FileOutputStream(other)) {
+            out.write(new byte[64]);
+        }
+        try {
+            new MappedGraph(other);
+            fail("not a binary graph file");
+        } catch (IOException e) {
+            assertTrue(true);
+        } finally {
+            other.delete();
+        }
+    }
+
+    @Test
+    public void testVertexSetView() {
+        Set<String> names = new HashSet<>();
+        for (Town t : mapped.vertexSet()) {
+            names.add(t.getName());
+        }
+        assertEquals(7, names.size());
+        assertTrue(mapped.vertexSet().contains(town[5]));
+        assertFalse(mapped.vertexSet().contains("Village_5"));
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * this class represents a route found by a shortest path search: the total distance, the ids of
+ * the towns along it and the roads between them. nothing is formatted when a route is found; the
+ * "town1 via roadName to town2 distance mi" strings are only built when hops or tolist is called.
+ *
+ * @author Leul Belay
+ */
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class PathResult {
+
+    /**
+     * the result for towns that are not connected or not in the graph
+     */
+    public static final PathResult NOT_FOUND = new PathResult(null, new int[0], new Road[0], SearchState.UNREACHED);
+
+    /**
+     * the snapshot the town ids belong to
+     */
+    private final GraphSnapshot snapshot;
+
+    /**
+     * the ids of the towns along the route, from the source to the destination
+     */
+    private final int[] townIds;
+
+    /**
+     * the roads along the route, roads[i] joins townids[i] and townids[i + 1]
+     */
+    private final Road[] roads;
+
+    /**
+     * the sum of the road distances
+     */
+    private final int totalDistance;
+
+    /**
+     * creates a route
+     *
+     * @param snapshot the snapshot the town ids belong to
+     * @param townIds the town ids from the source to the destination, not copied
+     * @param roads the roads between them, not copied
+     * @param totalDistance the sum of the road distances
+     */
+    PathResult(GraphSnapshot snapshot, int[] townIds, Road[] roads, int totalDistance) {
+        this.snapshot = snapshot;
+        this.townIds = townIds;
+        this.roads = roads;
+        this.totalDistance = totalDistance;
+    }
+
+    /**
+     * creates a route from the road ids along it, adding up its distance
+     *
+     * @param snapshot the snapshot the ids belong to
+     * @param townIds the town ids from the source to the destination, not copied
+     * @param roadIds the road ids between them
+     * @return the route
+     */
+    static PathResult of(GraphSnapshot snapshot, int[] townIds, int[] roadIds) {
+        Road[] roads = new Road[roadIds.length];
+        int total = 0;
+        for (int i = 0; i < roadIds.length; i++) {
+            roads[i] = snapshot.road(roadIds[i]);
+            total += roads[i].getWeight();
+        }
+        return new PathResult(snapshot, townIds, roads, total);
+    }
+
+    /**
+     * checks if a route was found. a route from a town to itself is found and has no roads
+     *
+     * @return true if the destination can be reached
+     */
+    public boolean isFound() {
+        return townIds.length > 0;
+    }
+
+    /**
+     * returns the length of the route
+     *
+     * @return the total distance in miles, or SearchState.UNREACHED if no route was found
+     */
+    public int totalDistance() {
+        return totalDistance;
+    }
+
+    /**
+     * returns the number of roads along the route
+     *
+     * @return the hop count
+     */
+    public int hopCount() {
+        return roads.length;
+    }
+
+    /**
+     * returns the snapshot id of a town along the route
+     *
+     * @param index 0 for the source up to hopcount for the destination
+     * @return the town id
+     */
+    public int townId(int index) {
+        return townIds[index];
+    }
+
+    /**
+     * returns a town along the route
+     *
+     * @param index 0 for the source up to hopcount for the destination
+     * @return the town
+     */
+    public Town town(int index) {
+        return snapshot.town(townIds[index]);
+    }
+
+    /**
+     * returns a road along the route
+     *
+     * @param index 0 for the first road up to hopcount - 1 for the last
+     * @return the road
+     */
+    public Road road(int index) {
+        return roads[index];
+    }
+
+    /**
+     * returns a copy of the town ids along the route
+     *
+     * @return the town ids from the source to the destination
+     */
+    public int[] townIds() {
+        return townIds.clone();
+    }
+
+    /**
+     * returns a copy of the roads along the route
+     *
+     * @return the roads from the source to the destination
+     */
+    public Road[] roads() {
+        return roads.clone();
+    }
+
+    /**
+     * returns the snapshot the town ids belong to
+     *
+     * @return the snapshot, or null for NOT_FOUND
+     */
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * formats one road of the route
+     *
+     * @param index the road index
+     * @return the string "town1 via roadName to town2 distance mi"
+     */
+    public String hop(int index) {
+        Road road = roads[index];
+        return snapshot.town(townIds[index]).getName() + " via " + road.getName() + " to "
+                + snapshot.town(townIds[index + 1]).getName() + " " + road.getWeight() + " mi";
+    }
+
+    /**
+     * returns a read-only view of the formatted roads. each string is built when it is read
+     *
+     * @return list of road strings in the format "town1 via roadName to town2 distance mi"
+     */
+    public List<String> hops() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return hop(index);
+            }
+
+            @Override
+            public int size() {
+                return roads.length;
+            }
+        };
+    }
+
+    /**
+     * formats every road of the route into a new list
+     *
+     * @return arraylist of road strings in the format "town1 via roadName to town2 distance mi"
+     */
+    public ArrayList<String> toList() {
+        ArrayList<String> path = new ArrayList<>(roads.length);
+        for (int i = 0; i < roads.length; i++) {
+            path.add(hop(i));
+        }
+        return path;
+    }
+
+    /**
+     * returns the formatted route with its total distance
+     *
+     * @return a readable description of the route
+     */
+    @Override
+    public String toString() {
+        return isFound() ? toList() + " " + totalDistance + " mi" : "no route";
+    }
+}
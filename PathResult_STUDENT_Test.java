@@ -0,0 +1,85 @@
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PathResult_STUDENT_Test {
+    private Graph graph;
+    private Town[] town;
+
+    @Before
+    public void setUp() throws Exception {
+        graph = new Graph();
+        town = new Town[6];
+        for (int i = 1; i < 6; i++) {
+            town[i] = new Town("Hamlet_" + i);
+            graph.addVertex(town[i]);
+        }
+        graph.addEdge(town[1], town[2], 4, "Path_1");
+        graph.addEdge(town[2], town[3], 5, "Path_2");
+        graph.addEdge(town[1], town[3], 12, "Path_3");
+        graph.addEdge(town[3], town[4], 1, "Path_4");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        graph = null;
+        town = null;
+    }
+
+    @Test
+    public void testRoute() {
+        PathResult route = graph.route(town[1], town[4]);
+        assertTrue(route.isFound());
+        assertEquals(10, route.totalDistance());
+        assertEquals(3, route.hopCount());
+        assertEquals(town[1], route.town(0));
+        assertEquals(town[4], route.town(3));
+        assertEquals("Path_2", route.road(1).getName());
+        assertEquals(4, route.townIds().length);
+        assertEquals(route.townId(2), route.snapshot().idOf(town[3]));
+        assertEquals(3, route.roads().length);
+    }
+
+    @Test
+    public void testFormatting() {
+        PathResult route = graph.route(town[4], town[1]);
+        List<String> hops = route.hops();
+        assertEquals(3, hops.size());
+        assertEquals("Hamlet_4 via Path_4 to Hamlet_3 1 mi", hops.get(0));
+        assertEquals("Hamlet_2 via Path_1 to Hamlet_1 4 mi", hops.get(2));
+        assertEquals(new ArrayList<>(hops), route.toList());
+        assertEquals(graph.shortestPath(town[4], town[1]), route.toList());
+    }
+
+    @Test
+    public void testNotFound() {
+        assertSame(PathResult.NOT_FOUND, graph.route(town[1], town[5]));
+        assertSame(PathResult.NOT_FOUND, graph.route(town[1], new Town("Hamlet_9")));
+        assertFalse(PathResult.NOT_FOUND.isFound());
+        assertEquals(Integer.MAX_VALUE, PathResult.NOT_FOUND.totalDistance());
+        assertTrue(PathResult.NOT_FOUND.toList().isEmpty());
+    }
+
+    @Test
+    public void testSameTown() {
+        PathResult route = graph.route(town[2], town[2]);
+        assertTrue(route.isFound());
+        assertEquals(0, route.totalDistance());
+        assertEquals(0, route.hopCount());
+        assertTrue(route.toList().isEmpty());
+    }
+
+    @Test
+    public void testEveryModeAgrees() {
+        for (RoutingMode mode : RoutingMode.values()) {
+            graph.setRoutingMode(mode);
+            PathResult route = graph.route(town[1], town[4]);
+            assertEquals(mode.toString(), 10, route.totalDistance());
+            assertEquals(mode.toString(), town[4], route.town(route.hopCount()));
+            assertFalse(mode.toString(), graph.route(town[5], town[1]).isFound());
+        }
+    }
+}
@@ -0,0 +1,445 @@
+/**
+ * this class collects the cost of a graph's route, distance and shortest path tree queries: towns
+ * settled, roads relaxed, heap operations, wall time and bytes allocated, with the latencies in a
+ * histogram. counters are longadders, so threads recording at the same time do not contend.
+ * measuring is off by default, and a query then pays for a single volatile read; the search
+ * loops themselves only bump two int counters per settled town, whether measuring is on or not.
+ * allocated bytes are only counted if the jvm already counts them per thread, the metrics look
+ * for that when measuring is first turned on and never turn the jvm setting on themselves.
+ *
+ * @author Leul Belay
+ */
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class QueryMetrics implements QueryMetricsMBean {
+
+    /**
+     * whether queries are measured
+     */
+    private volatile boolean enabled;
+
+    /**
+     * the thread bean used to read allocated bytes, or null if measuring was never turned on or
+     * the jvm does not count them
+     */
+    private volatile com.sun.management.ThreadMXBean threads;
+
+    /**
+     * whether the jvm was asked for the thread bean yet
+     */
+    private volatile boolean threadsChecked;
+
+    /**
+     * the number of measured queries
+     */
+    private final LongAdder queries = new LongAdder();
+
+    /**
+     * the towns settled by measured queries
+     */
+    private final LongAdder settled = new LongAdder();
+
+    /**
+     * the roads relaxed by measured queries
+     */
+    private final LongAdder relaxed = new LongAdder();
+
+    /**
+     * the heap operations of measured queries
+     */
+    private final LongAdder heapOperations = new LongAdder();
+
+    /**
+     * the bytes allocated by measured queries
+     */
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    /**
+     * the wall time of measured queries in nanoseconds
+     */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * the latency of each measured query
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * the wall time of the slowest measured query
+     */
+    private volatile long slowestNanos = -1;
+
+    /**
+     * the description of the slowest measured query
+     */
+    private String slowestQuery = "";
+
+    /**
+     * the name the metrics are registered under in jmx, or null
+     */
+    private ObjectName registeredName;
+
+    /**
+     * the state of one query being measured, taken when it starts
+     */
+    static final class Sample {
+
+        /**
+         * the thread bean used to read allocated bytes, or null
+         */
+        private final com.sun.management.ThreadMXBean threads;
+
+        /**
+         * the time the query started
+         */
+        private final long startNanos;
+
+        /**
+         * the bytes the thread had allocated when the query started
+         */
+        private final long startBytes;
+
+        /**
+         * the thread's search state
+         */
+        private final SearchState forward;
+
+        /**
+         * the thread's second search state
+         */
+        private final SearchState backward;
+
+        /**
+         * the generation of the thread's search state when the query started
+         */
+        private final long forwardGeneration;
+
+        /**
+         * the generation of the thread's second search state when the query started
+         */
+        private final long backwardGeneration;
+
+        /**
+         * starts measuring a query on the current thread
+         *
+         * @param threads the thread bean used to read allocated bytes, or null
+         */
+        Sample(com.sun.management.ThreadMXBean threads) {
+            this.threads = threads;
+            forward = SearchState.peekCurrentThread();
+            backward = SearchState.peekReverseForCurrentThread();
+            forwardGeneration = forward.generation();
+            backwardGeneration = backward.generation();
+            startBytes = (threads == null) ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            startNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * checks if queries are being measured
+     *
+     * @return true if measuring is on
+     */
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * turns measuring on or off. the first time it is turned on the jvm is asked whether it
+     * counts allocated bytes per thread
+     *
+     * @param enabled true to measure queries
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        if (enabled && !threadsChecked) {
+            synchronized (this) {
+                if (!threadsChecked) {
+                    threads = allocationCounter();
+                    threadsChecked = true;
+                }
+            }
+        }
+        this.enabled = enabled;
+    }
+
+    /**
+     * starts measuring a query on the current thread
+     *
+     * @return the sample to pass to end, or null if measuring is off
+     */
+    Sample begin() {
+        return enabled ? new Sample(threads) : null;
+    }
+
+    /**
+     * finishes measuring a query. the work of the search is read from the thread's search states,
+     * counting only states that were prepared after the query began, so a query answered from a
+     * cache counts its time but no search work
+     *
+     * @param sample the sample begin returned
+     * @param kind the kind of query, for the slowest query description
+     * @param source the start town
+     * @param destination the end town, or null for whole-tree queries
+     */
+    void end(Sample sample, String kind, Town source, Town destination) {
+        long nanos = System.nanoTime() - sample.startNanos;
+        long bytes = (sample.threads == null) ? 0
+                : sample.threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - sample.startBytes;
+        long settledTowns = 0;
+        long relaxedRoads = 0;
+        long heapOps = 0;
+        if (sample.forward.generation() != sample.forwardGeneration) {
+            settledTowns += sample.forward.settledCount();
+            relaxedRoads += sample.forward.relaxedCount();
+            heapOps += sample.forward.heap().operationCount();
+        }
+        if (sample.backward.generation() != sample.backwardGeneration) {
+            settledTowns += sample.backward.settledCount();
+            relaxedRoads += sample.backward.relaxedCount();
+            heapOps += sample.backward.heap().operationCount();
+        }
+
+        queries.increment();
+        settled.add(settledTowns);
+        relaxed.add(relaxedRoads);
+        heapOperations.add(heapOps);
+        allocatedBytes.add(bytes);
+        totalNanos.add(nanos);
+        latencies.record(nanos);
+        if (nanos > slowestNanos) {
+            recordSlowest(nanos, kind + " " + name(source) + (destination == null ? "" : " -> " + name(destination))
+                    + ": " + nanos / 1000 + " us, " + settledTowns + " settled, " + relaxedRoads + " relaxed, "
+                    + heapOps + " heap ops, " + (sample.threads == null ? "?" : String.valueOf(bytes)) + " bytes");
+        }
+    }
+
+    /**
+     * registers the metrics with the platform mbean server so jmx clients can read them
+     *
+     * @param name the name to tell this graph's metrics apart, such as the service name
+     * @throws JMException if the name is invalid or already registered
+     */
+    public synchronized void register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("townrouting:type=QueryMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+    }
+
+    /**
+     * removes the metrics from the platform mbean server if they were registered
+     *
+     * @throws JMException if the server refuses
+     */
+    public synchronized void unregister() throws JMException {
+        if (registeredName != null) {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            registeredName = null;
+        }
+    }
+
+    /**
+     * returns the number of measured queries
+     *
+     * @return the query count
+     */
+    @Override
+    public long getQueryCount() {
+        return queries.sum();
+    }
+
+    /**
+     * returns the total number of towns the measured queries settled
+     *
+     * @return the settled count
+     */
+    @Override
+    public long getNodesSettled() {
+        return settled.sum();
+    }
+
+    /**
+     * returns the total number of roads the measured queries looked at
+     *
+     * @return the relaxed count
+     */
+    @Override
+    public long getEdgesRelaxed() {
+        return relaxed.sum();
+    }
+
+    /**
+     * returns the total number of heap inserts, key changes and polls of the measured queries
+     *
+     * @return the heap operation count
+     */
+    @Override
+    public long getHeapOperations() {
+        return heapOperations.sum();
+    }
+
+    /**
+     * returns the total bytes the measured queries allocated
+     *
+     * @return the bytes, or -1 if the jvm does not count them
+     */
+    @Override
+    public long getAllocatedBytes() {
+        return (threads == null) ? -1 : allocatedBytes.sum();
+    }
+
+    /**
+     * returns the total wall time of the measured queries
+     *
+     * @return the time in nanoseconds
+     */
+    @Override
+    public long getTotalTimeNanos() {
+        return totalNanos.sum();
+    }
+
+    /**
+     * returns the mean latency of the measured queries
+     *
+     * @return the latency in microseconds, 0 if none were measured
+     */
+    @Override
+    public double getMeanLatencyMicros() {
+        long count = queries.sum();
+        return (count == 0) ? 0 : totalNanos.sum() / 1e3 / count;
+    }
+
+    /**
+     * returns the median latency
+     *
+     * @return the latency in microseconds
+     */
+    @Override
+    public double getLatencyP50Micros() {
+        return latencies.percentile(50) / 1e3;
+    }
+
+    /**
+     * returns the 99th percentile latency
+     *
+     * @return the latency in microseconds
+     */
+    @Override
+    public double getLatencyP99Micros() {
+        return latencies.percentile(99) / 1e3;
+    }
+
+    /**
+     * returns the 99.9th percentile latency
+     *
+     * @return the latency in microseconds
+     */
+    @Override
+    public double getLatencyP999Micros() {
+        return latencies.percentile(99.9) / 1e3;
+    }
+
+    /**
+     * returns the latency histogram
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    /**
+     * returns the work and time of the slowest measured query
+     *
+     * @return a description of the query, or an empty string if none was measured
+     */
+    @Override
+    public synchronized String getSlowestQuery() {
+        return slowestQuery;
+    }
+
+    /**
+     * clears every counter, the latency histogram and the slowest query
+     */
+    @Override
+    public void reset() {
+        queries.reset();
+        settled.reset();
+        relaxed.reset();
+        heapOperations.reset();
+        allocatedBytes.reset();
+        totalNanos.reset();
+        latencies.reset();
+        synchronized (this) {
+            slowestNanos = -1;
+            slowestQuery = "";
+        }
+    }
+
+    /**
+     * formats every metric as text, with the per query averages
+     *
+     * @return the metrics, one per line
+     */
+    @Override
+    public String dump() {
+        long count = getQueryCount();
+        double perQuery = Math.max(1, count);
+        return "queries: " + count + "\n"
+                + "nodes settled: " + getNodesSettled() + " (" + String.format("%.1f", getNodesSettled() / perQuery)
+                + " per query)\n"
+                + "edges relaxed: " + getEdgesRelaxed() + " (" + String.format("%.1f", getEdgesRelaxed() / perQuery)
+                + " per query)\n"
+                + "heap operations: " + getHeapOperations() + " ("
+                + String.format("%.1f", getHeapOperations() / perQuery) + " per query)\n"
+                + "allocated bytes: " + getAllocatedBytes() + " ("
+                + String.format("%.1f", getAllocatedBytes() / perQuery) + " per query)\n"
+                + String.format("latency us: mean %.1f, p50 %.1f, p99 %.1f, p99.9 %.1f%n", getMeanLatencyMicros(),
+                        getLatencyP50Micros(), getLatencyP99Micros(), getLatencyP999Micros())
+                + "slowest: " + getSlowestQuery() + "\n";
+    }
+
+    /**
+     * keeps the description of a query if it is still the slowest
+     *
+     * @param nanos the query's wall time
+     * @param description the query's description
+     */
+    private synchronized void recordSlowest(long nanos, String description) {
+        if (nanos > slowestNanos) {
+            slowestNanos = nanos;
+            slowestQuery = description;
+        }
+    }
+
+    /**
+     * returns a town's name for a query description
+     *
+     * @param town the town, may be null
+     * @return the name
+     */
+    private static String name(Town town) {
+        return (town == null) ? "null" : town.getName();
+    }
+
+    /**
+     * returns the thread bean if the jvm counts allocated bytes per thread. the setting is left
+     * as the host application has it
+     *
+     * @return the bean, or null
+     */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counter = (com.sun.management.ThreadMXBean) bean;
+            if (counter.isThreadAllocatedMemorySupported() && counter.isThreadAllocatedMemoryEnabled()) {
+                return counter;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * this interface is the jmx view of a graph's query metrics, so they can be read and reset from
+ * jconsole or any other jmx client while the service runs.
+ *
+ * @author Leul Belay
+ */
+public interface QueryMetricsMBean {
+
+    /**
+     * checks if queries are being measured
+     *
+     * @return true if measuring is on
+     */
+    boolean isEnabled();
+
+    /**
+     * turns measuring on or off
+     *
+     * @param enabled true to measure queries
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * returns the number of measured queries
+     *
+     * @return the query count
+     */
+    long getQueryCount();
+
+    /**
+     * returns the total number of towns the measured queries settled
+     *
+     * @return the settled count
+     */
+    long getNodesSettled();
+
+    /**
+     * returns the total number of roads the measured queries looked at
+     *
+     * @return the relaxed count
+     */
+    long getEdgesRelaxed();
+
+    /**
+     * returns the total number of heap inserts, key changes and polls of the measured queries
+     *
+     * @return the heap operation count
+     */
+    long getHeapOperations();
+
+    /**
+     * returns the total bytes the measured queries allocated
+     *
+     * @return the bytes, or -1 if the jvm does not count them
+     */
+    long getAllocatedBytes();
+
+    /**
+     * returns the total wall time of the measured queries
+     *
+     * @return the time in nanoseconds
+     */
+    long getTotalTimeNanos();
+
+    /**
+     * returns the mean latency of the measured queries
+     *
+     * @return the latency in microseconds
+     */
+    double getMeanLatencyMicros();
+
+    /**
+     * returns the median latency
+     *
+     * @return the latency in microseconds
+     */
+    double getLatencyP50Micros();
+
+    /**
+     * returns the 99th percentile latency
+     *
+     * @return the latency in microseconds
+     */
+    double getLatencyP99Micros();
+
+    /**
+     * returns the 99.9th percentile latency
+     *
+     * @return the latency in microseconds
+     */
+    double getLatencyP999Micros();
+
+    /**
+     * returns the work and time of the slowest measured query
+     *
+     * @return a description of the query, or an empty string if none was measured
+     */
+    String getSlowestQuery();
+
+    /**
+     * clears every counter and the latency histogram
+     */
+    void reset();
+
+    /**
+     * formats every metric as text
+     *
+     * @return the metrics, one per line
+     */
+    String dump();
+}
@@ -0,0 +1,118 @@
+import static org.junit.Assert.*;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryMetrics_STUDENT_Test {
+    private Graph graph;
+    private Town[] town;
+
+    @Before
+    public void setUp() throws Exception {
+        graph = new Graph();
+        town = new Town[6];
+        for (int i = 1; i < 6; i++) {
+            town[i] = new Town("Stop_" + i);
+            graph.addVertex(town[i]);
+        }
+        graph.addEdge(town[1], town[2], 2, "Line_1");
+        graph.addEdge(town[2], town[3], 2, "Line_2");
+        graph.addEdge(town[3], town[4], 2, "Line_3");
+        graph.addEdge(town[1], town[4], 9, "Line_4");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        graph.metrics().unregister();
+        graph = null;
+        town = null;
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        graph.shortestPath(town[1], town[4]);
+        assertFalse(graph.metrics().isEnabled());
+        assertEquals(0, graph.metrics().getQueryCount());
+    }
+
+    @Test
+    public void testCountsSearchWork() {
+        QueryMetrics metrics = graph.metrics();
+        metrics.setEnabled(true);
+        graph.setRoutingMode(RoutingMode.POINT_TO_POINT);
+        assertEquals(3, graph.shortestPath(town[1], town[4]).size());
+        assertEquals(1, metrics.getQueryCount());
+        assertEquals(3, metrics.getNodesSettled());
+        assertEquals(6, metrics.getEdgesRelaxed());
+        assertTrue(metrics.getHeapOperations() >= 4);
+        assertTrue(metrics.getTotalTimeNanos() > 0);
+        assertTrue(metrics.getSlowestQuery().startsWith("route Stop_1 -> Stop_4"));
+
+        graph.dijkstraShortestPath(town[1]);
+        assertEquals(2, metrics.getQueryCount());
+        assertEquals(3 + 4, metrics.getNodesSettled());
+        assertTrue(metrics.dump().contains("queries: 2"));
+
+        metrics.reset();
+        assertEquals(0, metrics.getQueryCount());
+        assertEquals("", metrics.getSlowestQuery());
+    }
+
+    @Test
+    public void testLeavesAllocationCountingAlone() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        boolean wasEnabled = threads.isThreadAllocatedMemoryEnabled();
+        threads.setThreadAllocatedMemoryEnabled(false);
+        try {
+            Graph other = new Graph();
+            other.metrics().setEnabled(true);
+            Town depot = new Town("Depot");
+            other.addVertex(depot);
+            other.dijkstraShortestPath(depot);
+            assertFalse(threads.isThreadAllocatedMemoryEnabled());
+            assertEquals(1, other.metrics().getQueryCount());
+            assertEquals(-1, other.metrics().getAllocatedBytes());
+        } finally {
+            threads.setThreadAllocatedMemoryEnabled(wasEnabled);
+        }
+    }
+
+    @Test
+    public void testCacheHitCountsNoSearchWork() {
+        QueryMetrics metrics = graph.metrics();
+        graph.dijkstraShortestPath(town[1]);
+        metrics.setEnabled(true);
+        assertEquals(6, graph.distance(town[1], town[4]));
+        assertEquals(1, metrics.getQueryCount());
+        assertEquals(0, metrics.getNodesSettled());
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500_000, histogram.percentile(50), 500_000 * 0.04);
+        assertEquals(990_000, histogram.percentile(99), 990_000 * 0.04);
+        assertTrue(histogram.percentile(100) >= 1_000_000);
+        for (long value : new long[] {0, 1, 63, 64, 65, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.highestValueOf(bucket) >= value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueOf(bucket - 1) < value);
+        }
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        graph.metrics().register("test");
+        ObjectName name = new ObjectName("townrouting:type=QueryMetrics,name=" + ObjectName.quote("test"));
+        ManagementFactory.getPlatformMBeanServer().setAttribute(name, new javax.management.Attribute("Enabled", true));
+        graph.shortestPath(town[1], town[3]);
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "QueryCount"));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * this class represents the towns reachable from a source within a distance budget, found by a
+ * bounded dijkstra search. the towns are kept as snapshot ids and distances in two int arrays,
+ * in the order the search settled them, so they come out sorted by distance from the source.
+ *
+ * @author Leul Belay
+ */
+import java.util.Arrays;
+
+public final class ReachableTowns {
+
+    /**
+     * the snapshot the ids belong to
+     */
+    private final GraphSnapshot snapshot;
+
+    /**
+     * the distance budget of the search
+     */
+    private final int budget;
+
+    /**
+     * the ids of the reachable towns, only the first size entries are used
+     */
+    private final int[] townIds;
+
+    /**
+     * the distance of each reachable town, only the first size entries are used
+     */
+    private final int[] distances;
+
+    /**
+     * the number of reachable towns
+     */
+    private final int size;
+
+    /**
+     * creates a result from the arrays a search filled
+     *
+     * @param snapshot the snapshot that was searched
+     * @param budget the distance budget
+     * @param townIds the town ids in settle order, not copied
+     * @param distances the distance of each town, not copied
+     * @param size the number of entries used
+     */
+    ReachableTowns(GraphSnapshot snapshot, int budget, int[] townIds, int[] distances, int size) {
+        this.snapshot = snapshot;
+        this.budget = budget;
+        this.townIds = townIds;
+        this.distances = distances;
+        this.size = size;
+    }
+
+    /**
+     * finds every town whose road distance from a source is at most the budget. the search never
+     * puts a town over the budget in its frontier and its scratch state only resets what it
+     * touched, so the work depends on the size of the reached area rather than the whole graph
+     *
+     * @param s the snapshot to search
+     * @param sourceId the id of the start town
+     * @param budget the largest distance to include
+     * @param state the cleared state to fill
+     * @return the reachable towns, the source first
+     */
+    static ReachableTowns search(GraphSnapshot s, int sourceId, int budget, SearchState state) {
+        int[] ids = new int[16];
+        int[] dists = new int[16];
+        int count = 0;
+        state.update(sourceId, 0);
+
+        IndexedMinHeap priorityQueue = state.heap();
+        priorityQueue.insertOrDecrease(sourceId, 0);
+
+        while (!priorityQueue.isEmpty()) {
+            int current = priorityQueue.poll();
+            int currentDistance = state.distance(current);
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                dists = Arrays.copyOf(dists, count * 2);
+            }
+            ids[count] = current;
+            dists[count++] = currentDistance;
+            for (int e = s.firstEdge(current), end = s.endEdge(current); e < end; e++) {
+                int neighbor = s.target(e);
+                int newDist = currentDistance + s.weight(e);
+                if (newDist <= budget && newDist < state.distance(neighbor)) {
+                    state.update(neighbor, newDist);
+                    priorityQueue.insertOrDecrease(neighbor, newDist);
+                }
+            }
+        }
+        return new ReachableTowns(s, budget, ids, dists, count);
+    }
+
+    /**
+     * returns the distance budget the towns were found with
+     *
+     * @return the budget in miles
+     */
+    public int budget() {
+        return budget;
+    }
+
+    /**
+     * returns the number of reachable towns, including the source
+     *
+     * @return the town count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * returns the snapshot id of a reachable town
+     *
+     * @param index 0 to size - 1, in order of distance
+     * @return the town id
+     */
+    public int townId(int index) {
+        checkIndex(index);
+        return townIds[index];
+    }
+
+    /**
+     * returns a reachable town
+     *
+     * @param index 0 to size - 1, in order of distance
+     * @return the town
+     */
+    public Town town(int index) {
+        checkIndex(index);
+        return snapshot.town(townIds[index]);
+    }
+
+    /**
+     * returns the distance of a reachable town from the source
+     *
+     * @param index 0 to size - 1, in order of distance
+     * @return the distance in miles
+     */
+    public int distance(int index) {
+        checkIndex(index);
+        return distances[index];
+    }
+
+    /**
+     * returns the snapshot the ids belong to
+     *
+     * @return the snapshot
+     */
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * checks that an index is within the reachable towns
+     *
+     * @param index the index
+     */
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of " + size);
+        }
+    }
+}
@@ -29,6 +29,11 @@ public class Road implements Comparable<Road> {
      */
     private String name;
 
+    /**
+     * the hash code of the towns and name, computed once
+     */
+    private final int hash;
+
     /**
      * creates a road between two towns with a specific distance and name
      *
@@ -42,6 +47,7 @@ public class Road implements Comparable<Road> {
         this.destination = destination;
         this.weight = weight;
         this.name = name;
+        this.hash = Objects.hash(source, destination, name);
     }
 
     /**
@@ -137,7 +143,7 @@ public class Road implements Comparable<Road> {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(source, destination, name);
+        return hash;
     }
 
     /**
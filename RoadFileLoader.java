@@ -0,0 +1,631 @@
+/**
+ * this class loads a road file into a graph. every line has the format "road,dist;town1;town2".
+ * the file is read in large blocks and each line is parsed byte by byte, without scanner or
+ * string.split, and each town name is decoded and turned into a town only once no matter how
+ * many roads use it. all towns and roads are then added to the graph in one bulk step.
+ * lines that do not match the format are skipped and counted. large files can also be loaded in
+ * parallel: the file is cut into byte ranges on line boundaries, the ranges are parsed on a
+ * fork-join pool and the results are merged into the graph in one bulk step.
+ *
+ * @author Leul Belay
+ */
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+public class RoadFileLoader {
+
+    /**
+     * the size of the blocks the file is read in
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * the largest byte range one parallel task parses
+     */
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+
+    /**
+     * the graph the roads are loaded into
+     */
+    private final Graph graph;
+
+    /**
+     * creates a loader that adds towns and roads to the given graph
+     *
+     * @param graph the graph to load into
+     */
+    public RoadFileLoader(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * reads a road file and adds its towns and roads to the graph
+     *
+     * @param file the file to read
+     * @return the line counts and timing of the load
+     * @throws IOException if the file cannot be read
+     */
+    public LoadReport load(File file) throws IOException {
+        long start = System.nanoTime();
+        ParsedRoads parsed = new ParsedRoads();
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int filled = 0;
+            int read;
+            while ((read = in.read(buffer, filled, buffer.length - filled)) > 0) {
+                filled += read;
+                int consumed = parsed.parseLines(buffer, 0, filled, false);
+                filled -= consumed;
+                System.arraycopy(buffer, consumed, buffer, 0, filled);
+                if (filled == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            parsed.parseLines(buffer, 0, filled, true);
+        }
+        Town[] towns = parsed.createTowns(this::townNamed);
+        int added = graph.addAll(Arrays.asList(towns), parsed.createRoads(towns));
+        return new LoadReport(parsed.lineCount(), added, parsed.malformedCount(), System.nanoTime() - start);
+    }
+
+    /**
+     * reads a road file in parallel on the common fork-join pool and adds its towns and roads to the graph
+     *
+     * @param file the file to read
+     * @return the line counts and timing of the load
+     * @throws IOException if the file cannot be read
+     */
+    public LoadReport loadParallel(File file) throws IOException {
+        return loadParallel(file, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * reads a road file in parallel and adds its towns and roads to the graph. the file is cut
+     * into about four byte ranges per worker, each starting right after a line break, the ranges
+     * are parsed on the pool, and the towns of all ranges are interned and added to the graph
+     * together with the roads in one bulk step. roads are added in file order
+     *
+     * @param file the file to read
+     * @param pool the pool to parse on
+     * @return the line counts and timing of the load
+     * @throws IOException if the file cannot be read
+     */
+    public LoadReport loadParallel(File file, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        List<ParsedRoads> chunks;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, pool.getParallelism() * 4);
+            List<ForkJoinTask<ParsedRoads>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(pool.submit(new ChunkTask(channel, bounds[i], bounds[i + 1])));
+            }
+            chunks = new ArrayList<>(tasks.size());
+            for (ForkJoinTask<ParsedRoads> task : tasks) {
+                chunks.add(task.join());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        Map<String, Town> towns = new HashMap<>();
+        List<Road> roads = new ArrayList<>();
+        long lines = 0;
+        long malformed = 0;
+        for (ParsedRoads chunk : chunks) {
+            Town[] local = chunk.internTowns(towns, this::townNamed);
+            roads.addAll(chunk.createRoads(local));
+            lines += chunk.lineCount();
+            malformed += chunk.malformedCount();
+        }
+        int added = graph.addAll(towns.values(), roads);
+        return new LoadReport(lines, added, malformed, System.nanoTime() - start);
+    }
+
+    /**
+     * returns the graph's own town with a name, or a new town if the graph does not have one yet,
+     * so roads read from a file attach to the towns already in the graph
+     *
+     * @param name the town name
+     * @return the town
+     */
+    private Town townNamed(String name) {
+        Town town = graph.town(name);
+        return (town != null) ? town : new Town(name);
+    }
+
+    /**
+     * cuts a file into byte ranges that each start at the beginning of a line
+     *
+     * @param channel the open file
+     * @param wanted the number of ranges wanted, more are made if a range would be too large
+     * @return the range boundaries, range i is [bounds[i], bounds[i + 1])
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] chunkBounds(FileChannel channel, int wanted) throws IOException {
+        long size = channel.size();
+        int count = (int) Math.max(Math.max(1, wanted), (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long[] bounds = new long[count + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        int used = 1;
+        for (int i = 1; i < count; i++) {
+            long position = Math.max(size * i / count, bounds[used - 1]);
+            long lineStart = nextLineStart(channel, position, probe);
+            if (lineStart > bounds[used - 1] && lineStart < size) {
+                bounds[used++] = lineStart;
+            }
+        }
+        bounds[used++] = size;
+        return Arrays.copyOf(bounds, used);
+    }
+
+    /**
+     * finds the first position at or after position that starts a line
+     *
+     * @param channel the open file
+     * @param position where to start looking
+     * @param probe a scratch buffer
+     * @return the position right after the next line break, or the file size if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private static long nextLineStart(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        long at = position - 1;
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, at);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return at + i + 1;
+                }
+            }
+            at += read;
+        }
+    }
+
+    /**
+     * this class parses one byte range of a road file on a fork-join pool
+     */
+    private static final class ChunkTask extends RecursiveTask<ParsedRoads> {
+
+        /**
+         * the serialization version, fork-join tasks are serializable but these are never serialized
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the open file, positional reads on it are safe from several threads
+         */
+        private final FileChannel channel;
+
+        /**
+         * the first byte of the range
+         */
+        private final long from;
+
+        /**
+         * one past the last byte of the range
+         */
+        private final long to;
+
+        /**
+         * creates a task for the byte range [from, to)
+         *
+         * @param channel the open file
+         * @param from the first byte
+         * @param to one past the last byte
+         */
+        ChunkTask(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ParsedRoads compute() {
+            byte[] data = new byte[(int) (to - from)];
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            try {
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, from + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            ParsedRoads parsed = new ParsedRoads();
+            parsed.parseLines(data, 0, buffer.position(), true);
+            return parsed;
+        }
+    }
+
+    /**
+     * this class holds the roads parsed from part of a road file as primitive records. town names
+     * are interned by their bytes into local ids, so a name that shows up on many lines is only
+     * decoded once
+     */
+    static final class ParsedRoads {
+
+        /**
+         * the number of lines seen
+         */
+        private long lines;
+
+        /**
+         * the number of lines that did not match the format
+         */
+        private long malformed;
+
+        /**
+         * the number of parsed roads
+         */
+        private int roadCount;
+
+        /**
+         * firsttowns and secondtowns hold the local town ids of each road
+         */
+        private int[] firstTowns = new int[1024];
+
+        /**
+         * secondtowns holds the local id of the second town of each road
+         */
+        private int[] secondTowns = new int[1024];
+
+        /**
+         * weights holds the distance of each road
+         */
+        private int[] weights = new int[1024];
+
+        /**
+         * roadnames holds the name of each road
+         */
+        private String[] roadNames = new String[1024];
+
+        /**
+         * townnames holds the decoded name of each local town id
+         */
+        private String[] townNames = new String[256];
+
+        /**
+         * the number of distinct town names
+         */
+        private int townCount;
+
+        /**
+         * slots is an open addressing table from name bytes to local town id + 1, 0 means empty
+         */
+        private int[] slots = new int[512];
+
+        /**
+         * slothashes holds the hash of the name in each used slot
+         */
+        private int[] slotHashes = new int[512];
+
+        /**
+         * namebytes holds the utf-8 bytes of each local town name, for comparing against the file
+         */
+        private byte[][] nameBytes = new byte[256][];
+
+        /**
+         * parses the complete lines in data[from, to). the bytes after the last line break are
+         * left alone unless endofinput is true, in which case they are parsed as the last line
+         *
+         * @param data the bytes to parse
+         * @param from the first byte
+         * @param to one past the last byte
+         * @param endOfInput true if no more bytes follow
+         * @return how many bytes from from were parsed
+         */
+        int parseLines(byte[] data, int from, int to, boolean endOfInput) {
+            int lineStart = from;
+            for (int i = from; i < to; i++) {
+                if (data[i] == '\n') {
+                    parseLine(data, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            if (endOfInput && lineStart < to) {
+                parseLine(data, lineStart, to);
+                lineStart = to;
+            }
+            return lineStart - from;
+        }
+
+        /**
+         * parses one line "road,dist;town1;town2", with surrounding whitespace around each field allowed.
+         * trailing empty fields ("town2;" or "town2;;") are ignored, as string.split did in the old
+         * loader. a line with a non-empty extra field, a distance that is not an int or an empty town
+         * name is malformed
+         *
+         * @param data the bytes of the file
+         * @param start the first byte of the line
+         * @param end one past the last byte of the line, not counting the line break
+         */
+        private void parseLine(byte[] data, int start, int end) {
+            lines++;
+            int firstSemicolon = -1;
+            int secondSemicolon = -1;
+            int comma = -1;
+            boolean blank = true;
+            for (int i = start; i < end; i++) {
+                byte b = data[i];
+                if (b == ';') {
+                    if (firstSemicolon < 0) {
+                        firstSemicolon = i;
+                    } else if (secondSemicolon < 0) {
+                        secondSemicolon = i;
+                    } else {
+                        for (int j = i + 1; j < end; j++) {
+                            if (data[j] != ';') {
+                                malformed++;
+                                return;
+                            }
+                        }
+                        end = i;
+                        break;
+                    }
+                } else if (b == ',' && firstSemicolon < 0) {
+                    if (comma >= 0) {
+                        malformed++;
+                        return;
+                    }
+                    comma = i;
+                } else if ((b & 0xff) > ' ') {
+                    blank = false;
+                }
+            }
+            if (blank && firstSemicolon < 0 && comma < 0) {
+                return;
+            }
+            if (secondSemicolon < 0 || comma < 0) {
+                malformed++;
+                return;
+            }
+            long distance = parseInt(data, comma + 1, firstSemicolon);
+            if (distance == Long.MIN_VALUE
+                    || skipBlanks(data, firstSemicolon + 1, secondSemicolon) == secondSemicolon
+                    || skipBlanks(data, secondSemicolon + 1, end) == end) {
+                malformed++;
+                return;
+            }
+            int nameStart = skipBlanks(data, start, comma);
+            int nameEnd = trimBlanks(data, nameStart, comma);
+            int first = intern(data, firstSemicolon + 1, secondSemicolon);
+            int second = intern(data, secondSemicolon + 1, end);
+            addRoad(first, second, (int) distance,
+                    new String(data, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8));
+        }
+
+        /**
+         * parses a decimal int with an optional sign and surrounding whitespace
+         *
+         * @param data the bytes
+         * @param from the first byte
+         * @param to one past the last byte
+         * @return the value, or Long.MIN_VALUE if the bytes are not a valid int
+         */
+        private static long parseInt(byte[] data, int from, int to) {
+            from = skipBlanks(data, from, to);
+            to = trimBlanks(data, from, to);
+            if (from == to) {
+                return Long.MIN_VALUE;
+            }
+            boolean negative = false;
+            if (data[from] == '-' || data[from] == '+') {
+                negative = (data[from] == '-');
+                from++;
+                if (from == to) {
+                    return Long.MIN_VALUE;
+                }
+            }
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                int digit = data[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return Long.MIN_VALUE;
+                }
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    return Long.MIN_VALUE;
+                }
+            }
+            value = negative ? -value : value;
+            return (value > Integer.MAX_VALUE) ? Long.MIN_VALUE : value;
+        }
+
+        /**
+         * returns the first index at or after from that is not whitespace
+         *
+         * @param data the bytes
+         * @param from the first byte
+         * @param to one past the last byte
+         * @return the index of the first non-blank byte, or to
+         */
+        private static int skipBlanks(byte[] data, int from, int to) {
+            while (from < to && (data[from] & 0xff) <= ' ') {
+                from++;
+            }
+            return from;
+        }
+
+        /**
+         * returns one past the last index before to that is not whitespace
+         *
+         * @param data the bytes
+         * @param from the first byte
+         * @param to one past the last byte
+         * @return one past the last non-blank byte, or from
+         */
+        private static int trimBlanks(byte[] data, int from, int to) {
+            while (to > from && (data[to - 1] & 0xff) <= ' ') {
+                to--;
+            }
+            return to;
+        }
+
+        /**
+         * returns the local id of the town name in data[from, to), trimmed, adding it if it is new
+         *
+         * @param data the bytes
+         * @param from the first byte
+         * @param to one past the last byte
+         * @return the local town id
+         */
+        private int intern(byte[] data, int from, int to) {
+            from = skipBlanks(data, from, to);
+            to = trimBlanks(data, from, to);
+            int length = to - from;
+            int hash = 1;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + data[i];
+            }
+            int mask = slots.length - 1;
+            int slot = hash & mask;
+            while (slots[slot] != 0) {
+                int id = slots[slot] - 1;
+                if (slotHashes[slot] == hash && Arrays.equals(nameBytes[id], 0, nameBytes[id].length, data, from, to)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (townCount == townNames.length) {
+                townNames = Arrays.copyOf(townNames, townCount * 2);
+                nameBytes = Arrays.copyOf(nameBytes, townCount * 2);
+            }
+            int id = townCount++;
+            nameBytes[id] = Arrays.copyOfRange(data, from, to);
+            townNames[id] = new String(data, from, length, StandardCharsets.UTF_8);
+            slots[slot] = id + 1;
+            slotHashes[slot] = hash;
+            if (townCount * 2 > slots.length) {
+                rehash();
+            }
+            return id;
+        }
+
+        /**
+         * doubles the name table
+         */
+        private void rehash() {
+            int[] oldSlots = slots;
+            int[] oldHashes = slotHashes;
+            slots = new int[oldSlots.length * 2];
+            slotHashes = new int[oldSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] != 0) {
+                    int slot = oldHashes[i] & mask;
+                    while (slots[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    slots[slot] = oldSlots[i];
+                    slotHashes[slot] = oldHashes[i];
+                }
+            }
+        }
+
+        /**
+         * appends a road record
+         *
+         * @param first the local id of the first town
+         * @param second the local id of the second town
+         * @param weight the distance
+         * @param name the road name
+         */
+        private void addRoad(int first, int second, int weight, String name) {
+            if (roadCount == weights.length) {
+                int capacity = roadCount * 2;
+                firstTowns = Arrays.copyOf(firstTowns, capacity);
+                secondTowns = Arrays.copyOf(secondTowns, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+                roadNames = Arrays.copyOf(roadNames, capacity);
+            }
+            firstTowns[roadCount] = first;
+            secondTowns[roadCount] = second;
+            weights[roadCount] = weight;
+            roadNames[roadCount++] = name;
+        }
+
+        /**
+         * looks up or creates one town for each distinct name
+         *
+         * @param factory returns the town for a name
+         * @return the towns indexed by local town id
+         */
+        Town[] createTowns(Function<String, Town> factory) {
+            Town[] towns = new Town[townCount];
+            for (int i = 0; i < townCount; i++) {
+                towns[i] = factory.apply(townNames[i]);
+            }
+            return towns;
+        }
+
+        /**
+         * looks up each distinct name in a shared name table, adding a new town for names not seen before
+         *
+         * @param towns the towns of all ranges merged so far, by name
+         * @param factory returns the town for a name not seen before
+         * @return the towns indexed by local town id
+         */
+        Town[] internTowns(Map<String, Town> towns, Function<String, Town> factory) {
+            Town[] local = new Town[townCount];
+            for (int i = 0; i < townCount; i++) {
+                local[i] = towns.computeIfAbsent(townNames[i], factory);
+            }
+            return local;
+        }
+
+        /**
+         * creates the roads of the parsed records
+         *
+         * @param towns the town for each local town id
+         * @return the roads in file order
+         */
+        List<Road> createRoads(Town[] towns) {
+            List<Road> roads = new ArrayList<>(roadCount);
+            for (int i = 0; i < roadCount; i++) {
+                roads.add(new Road(towns[firstTowns[i]], towns[secondTowns[i]], weights[i], roadNames[i]));
+            }
+            return roads;
+        }
+
+        /**
+         * returns the number of lines seen
+         *
+         * @return the line count
+         */
+        long lineCount() {
+            return lines;
+        }
+
+        /**
+         * returns the number of lines that did not match the format
+         *
+         * @return the malformed line count
+         */
+        long malformedCount() {
+            return malformed;
+        }
+    }
+}
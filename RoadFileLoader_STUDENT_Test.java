@@ -0,0 +1,138 @@
+import static org.junit.Assert.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RoadFileLoader_STUDENT_Test {
+    private File file;
+    private Graph graph;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("roads", ".txt");
+        PrintWriter out = new PrintWriter(file, "UTF-8");
+        out.print("Street_1,3;City_1;City_2\n");
+        out.print(" Street_2 , 7 ; City_1 ; City_3 \r\n");
+        out.print("\n");
+        out.print("Street_3,x;City_1;City_4\n");
+        out.print("Street_4,2;City_3\n");
+        out.print("Street_5,2;City_3;City_4;City_5\n");
+        out.print("Street_6,4;City_3;\n");
+        out.print("Street_7,1;Saint-\u00c9tienne;City_2");
+        out.close();
+        graph = new Graph();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+        file = null;
+        graph = null;
+    }
+
+    @Test
+    public void testLoadCounts() throws Exception {
+        LoadReport report = new RoadFileLoader(graph).load(file);
+        assertEquals(8, report.getLines());
+        assertEquals(3, report.getRoads());
+        assertEquals(4, report.getMalformedLines());
+        assertTrue(report.linesPerSecond() > 0);
+    }
+
+    @Test
+    public void testTrailingEmptyFields() throws Exception {
+        PrintWriter out = new PrintWriter(file, "UTF-8");
+        out.print("Elm,3;B;C;\n");
+        out.print("Oak,4;C;D;;\n");
+        out.print("Ash,5;D;E; \n");
+        out.print("Fir,6;E;F;G\n");
+        out.close();
+        LoadReport report = new RoadFileLoader(graph).load(file);
+        assertEquals(2, report.getRoads());
+        assertEquals(2, report.getMalformedLines());
+        assertEquals("Elm", graph.getEdge(new Town("B"), new Town("C")).getName());
+        assertEquals(4, graph.getEdge(new Town("C"), new Town("D")).getWeight());
+        assertFalse(graph.containsVertex(new Town("E")));
+    }
+
+    @Test
+    public void testDuplicateRoadsNotCounted() throws Exception {
+        PrintWriter out = new PrintWriter(file, "UTF-8");
+        out.print("Elm,3;A;B\nElm,3;A;B\nOak,4;A;B\n");
+        out.close();
+        assertEquals(2, new RoadFileLoader(graph).load(file).getRoads());
+        assertEquals(2, graph.edgeSet().size());
+        Graph parallel = new Graph();
+        assertEquals(2, new RoadFileLoader(parallel).loadParallel(file).getRoads());
+        assertEquals(2, parallel.edgeSet().size());
+    }
+
+    @Test
+    public void testLoadedGraph() throws Exception {
+        new RoadFileLoader(graph).load(file);
+        assertEquals(4, graph.vertexSet().size());
+        assertEquals("Street_2", graph.getEdge(new Town("City_3"), new Town("City_1")).getName());
+        assertEquals(7, graph.getEdge(new Town("City_3"), new Town("City_1")).getWeight());
+        assertTrue(graph.containsEdge(new Town("Saint-\u00c9tienne"), new Town("City_2")));
+        assertFalse(graph.containsVertex(new Town("City_4")));
+        ArrayList<String> path = graph.shortestPath(new Town("City_3"), new Town("Saint-\u00c9tienne"));
+        assertEquals(3, path.size());
+        assertEquals("City_3 via Street_2 to City_1 7 mi", path.get(0));
+    }
+
+    @Test
+    public void testTownsInternedOnce() throws Exception {
+        new RoadFileLoader(graph).load(file);
+        Town city1 = null;
+        for (Road r : graph.edgesOf(new Town("City_1"))) {
+            Town t = r.getSource().getName().equals("City_1") ? r.getSource() : r.getDestination();
+            if (city1 != null) {
+                assertSame(city1, t);
+            }
+            city1 = t;
+        }
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingFile() throws Exception {
+        new TownGraphManager().populateTownGraph(new File(file.getPath() + ".missing"));
+    }
+
+    @Test
+    public void testParallelLoadMatchesSequential() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        Graph parallel = new Graph();
+        LoadReport report = new RoadFileLoader(parallel).loadParallel(file, pool);
+        pool.shutdown();
+        LoadReport sequential = new RoadFileLoader(graph).load(file);
+        assertEquals(sequential.getLines(), report.getLines());
+        assertEquals(sequential.getRoads(), report.getRoads());
+        assertEquals(sequential.getMalformedLines(), report.getMalformedLines());
+        assertEquals(graph.vertexSet(), parallel.vertexSet());
+        assertEquals(graph.edgeSet().size(), parallel.edgeSet().size());
+        assertEquals(graph.shortestPath(new Town("City_3"), new Town("City_2")),
+                parallel.shortestPath(new Town("City_3"), new Town("City_2")));
+    }
+
+    @Test
+    public void testLoadReusesExistingTowns() throws Exception {
+        Town city1 = new Town("City_1");
+        graph.addVertex(city1);
+        new RoadFileLoader(graph).load(file);
+        assertSame(city1, graph.town("City_1"));
+        for (Road road : graph.edgesOf(city1)) {
+            assertTrue(road.getSource() == city1 || road.getDestination() == city1);
+        }
+        Graph parallel = new Graph();
+        Town city3 = new Town("City_3");
+        parallel.addVertex(city3);
+        new RoadFileLoader(parallel).loadParallel(file);
+        assertSame(city3, parallel.town("City_3"));
+        assertEquals(1, parallel.edgesOf(city3).size());
+    }
+}
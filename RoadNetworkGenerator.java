@@ -0,0 +1,591 @@
+/**
+ * this class generates synthetic road networks for load and scale testing. the same topology,
+ * size, settings and seed always give the same towns and roads. towns are named "Town_i" and get
+ * map coordinates, and roads are handed to a sink one at a time, so very large networks can be
+ * written to road files without keeping the roads in memory. only the grid and random topologies
+ * run in constant memory; random geometric networks keep two coordinates per town and scale-free
+ * networks keep both ends of every road, which is still far less than the file they produce.
+ *
+ * usage: java RoadNetworkGenerator topology towns seed file [--degree d] [--weights min,max]
+ *
+ * @author Leul Belay
+ */
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+public class RoadNetworkGenerator {
+
+    /**
+     * the shape of a generated network
+     */
+    public enum Topology {
+
+        /**
+         * a square grid where each town has a road to its right and lower neighbour, so every
+         * inner town has degree 4, like a city street map
+         */
+        GRID,
+
+        /**
+         * towns scattered uniformly over a square, with a road between every two towns closer
+         * than a radius chosen for the average degree. degrees are close to poisson and road
+         * distances grow with the straight-line distance across the weight range, like a regional
+         * road map
+         */
+        RANDOM_GEOMETRIC,
+
+        /**
+         * an erdos-renyi network where every pair of towns has a road with the same probability,
+         * giving poisson degrees with no geography
+         */
+        RANDOM,
+
+        /**
+         * a barabasi-albert network where each new town connects to existing towns with
+         * probability proportional to their degree, giving a few hubs with very high degree
+         */
+        SCALE_FREE
+    }
+
+    /**
+     * receives the generated roads
+     */
+    @FunctionalInterface
+    public interface RoadSink {
+
+        /**
+         * accepts one road
+         *
+         * @param first the index of one town
+         * @param second the index of the other town
+         * @param weight the distance of the road
+         */
+        void road(int first, int second, int weight);
+    }
+
+    /**
+     * the shape of the network
+     */
+    private final Topology topology;
+
+    /**
+     * the number of towns
+     */
+    private final int townCount;
+
+    /**
+     * the seed of the random numbers
+     */
+    private final long seed;
+
+    /**
+     * the smallest road distance for topologies with random weights
+     */
+    private int minWeight = 1;
+
+    /**
+     * the largest road distance for topologies with random weights
+     */
+    private int maxWeight = 100;
+
+    /**
+     * the average number of roads per town the random topologies aim for
+     */
+    private double averageDegree = 6.0;
+
+    /**
+     * creates a generator
+     *
+     * @param topology the shape of the network
+     * @param townCount the number of towns, rounded down to a square number for grids
+     * @param seed the seed of the random numbers
+     */
+    public RoadNetworkGenerator(Topology topology, int townCount, long seed) {
+        if (townCount < 1) {
+            throw new IllegalArgumentException("townCount must be positive: " + townCount);
+        }
+        this.topology = topology;
+        this.townCount = (topology == Topology.GRID) ? square(townCount) : townCount;
+        this.seed = seed;
+    }
+
+    /**
+     * sets the range of road distances. random geometric roads map their length onto the range,
+     * the other topologies draw distances uniformly from it
+     *
+     * @param min the smallest distance, at least 1
+     * @param max the largest distance
+     */
+    public void setWeightRange(int min, int max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("invalid weight range: " + min + ".." + max);
+        }
+        minWeight = min;
+        maxWeight = max;
+    }
+
+    /**
+     * sets the average number of roads per town for the random geometric, random and scale-free
+     * topologies. a scale-free network rounds it to an even number
+     *
+     * @param degree the average degree, at least 1
+     */
+    public void setAverageDegree(double degree) {
+        if (degree < 1) {
+            throw new IllegalArgumentException("averageDegree must be at least 1: " + degree);
+        }
+        averageDegree = degree;
+    }
+
+    /**
+     * returns the number of towns
+     *
+     * @return the town count
+     */
+    public int townCount() {
+        return townCount;
+    }
+
+    /**
+     * returns the name of a town
+     *
+     * @param index the town index
+     * @return the name "Town_index"
+     */
+    public static String townName(int index) {
+        return "Town_" + index;
+    }
+
+    /**
+     * creates the town with the given index, with its map coordinates
+     *
+     * @param index the town index
+     * @return the town
+     */
+    public Town town(int index) {
+        if (topology == Topology.GRID) {
+            int side = (int) Math.sqrt(townCount);
+            return new Town(townName(index), index % side, index / side);
+        }
+        if (topology == Topology.RANDOM_GEOMETRIC) {
+            double[] point = point(index);
+            double scale = milesPerUnit();
+            return new Town(townName(index), point[0] * scale, point[1] * scale);
+        }
+        return new Town(townName(index));
+    }
+
+    /**
+     * builds the network as a graph, adding all roads in one bulk step
+     *
+     * @return the graph
+     */
+    public Graph buildGraph() {
+        return buildGraph(new Graph());
+    }
+
+    /**
+     * adds the network to a graph, adding all roads in one bulk step
+     *
+     * @param graph the graph to fill, usually empty
+     * @return the graph
+     */
+    public Graph buildGraph(Graph graph) {
+        Town[] towns = new Town[townCount];
+        for (int i = 0; i < townCount; i++) {
+            towns[i] = town(i);
+        }
+        List<Road> roads = new ArrayList<>();
+        generate((first, second, weight) ->
+                roads.add(new Road(towns[first], towns[second], weight, "Road_" + roads.size())));
+        graph.addAll(Arrays.asList(towns), roads);
+        return graph;
+    }
+
+    /**
+     * writes the network as a road file in the "road,dist;town1;town2" format populatetowngraph
+     * reads, one road per line named "Road_i"
+     *
+     * @param file the file to create or overwrite
+     * @return the number of roads written
+     * @throws IOException if the file cannot be written
+     */
+    public long writeRoadFile(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            return writeRoads(out);
+        }
+    }
+
+    /**
+     * writes the network as road file lines to a stream. lines are formatted straight into a byte
+     * buffer, so the only memory used besides the generator's own is the buffer
+     *
+     * @param out the stream to write to, not closed
+     * @return the number of roads written
+     * @throws IOException if the stream cannot be written
+     */
+    public long writeRoads(OutputStream out) throws IOException {
+        LineWriter writer = new LineWriter(out);
+        try {
+            generate(writer);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return writer.roadCount;
+    }
+
+    /**
+     * generates the roads of the network in a fixed order, handing each to the sink
+     *
+     * @param sink receives the roads
+     */
+    public void generate(RoadSink sink) {
+        SplittableRandom random = new SplittableRandom(seed);
+        if (topology == Topology.GRID) {
+            generateGrid(random, sink);
+        } else if (topology == Topology.RANDOM_GEOMETRIC) {
+            generateGeometric(sink);
+        } else if (topology == Topology.RANDOM) {
+            generateRandom(random, sink);
+        } else {
+            generateScaleFree(random, sink);
+        }
+    }
+
+    /**
+     * generates a grid with a road from each town to its right and lower neighbour
+     *
+     * @param random the random numbers
+     * @param sink receives the roads
+     */
+    private void generateGrid(SplittableRandom random, RoadSink sink) {
+        int side = (int) Math.sqrt(townCount);
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int i = y * side + x;
+                if (x + 1 < side) {
+                    sink.road(i, i + 1, weight(random));
+                }
+                if (y + 1 < side) {
+                    sink.road(i, i + side, weight(random));
+                }
+            }
+        }
+    }
+
+    /**
+     * generates a random geometric network. the square has side sqrt(towncount) so there is one
+     * town per unit of area, and towns are bucketed into cells as wide as the radius so each town
+     * is only compared with towns in its own and the next cells
+     *
+     * @param sink receives the roads
+     */
+    private void generateGeometric(RoadSink sink) {
+        double side = Math.sqrt(townCount);
+        double radius = Math.sqrt(averageDegree / Math.PI);
+        int cells = Math.max(1, (int) (side / radius));
+        double cellSize = side / cells;
+        int[] cellStart = new int[cells * cells + 1];
+        double[] xs = new double[townCount];
+        double[] ys = new double[townCount];
+        int[] cellOf = new int[townCount];
+        for (int i = 0; i < townCount; i++) {
+            double[] point = point(i);
+            xs[i] = point[0];
+            ys[i] = point[1];
+            int cx = Math.min(cells - 1, (int) (xs[i] / cellSize));
+            int cy = Math.min(cells - 1, (int) (ys[i] / cellSize));
+            cellOf[i] = cy * cells + cx;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] members = new int[townCount];
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        for (int i = 0; i < townCount; i++) {
+            members[fill[cellOf[i]]++] = i;
+        }
+
+        double radiusSquared = radius * radius;
+        double scale = milesPerUnit();
+        for (int i = 0; i < townCount; i++) {
+            int cx = cellOf[i] % cells;
+            int cy = cellOf[i] / cells;
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(cells - 1, cy + 1); ny++) {
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(cells - 1, cx + 1); nx++) {
+                    int c = ny * cells + nx;
+                    for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                        int j = members[k];
+                        if (j <= i) {
+                            continue;
+                        }
+                        double dx = xs[i] - xs[j];
+                        double dy = ys[i] - ys[j];
+                        double squared = dx * dx + dy * dy;
+                        if (squared <= radiusSquared) {
+                            sink.road(i, j, Math.min(maxWeight, minWeight + (int) Math.ceil(Math.sqrt(squared) * scale)));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * generates an erdos-renyi network with the skipping method of batagelj and brandes: instead of
+     * testing every pair it jumps straight to the next pair that gets a road, so the work and
+     * memory depend only on the roads written
+     *
+     * @param random the random numbers
+     * @param sink receives the roads
+     */
+    private void generateRandom(SplittableRandom random, RoadSink sink) {
+        if (townCount < 2) {
+            return;
+        }
+        double p = Math.min(1.0, averageDegree / (townCount - 1));
+        double logSkip = Math.log(1 - p);
+        long v = 1;
+        long w = -1;
+        while (v < townCount) {
+            long skip = (p >= 1.0) ? 0 : (long) Math.floor(Math.log(1 - random.nextDouble()) / logSkip);
+            w += 1 + skip;
+            while (w >= v && v < townCount) {
+                w -= v;
+                v++;
+            }
+            if (v < townCount) {
+                sink.road((int) v, (int) w, weight(random));
+            }
+        }
+    }
+
+    /**
+     * generates a barabasi-albert network. it starts from a small clique and every later town
+     * joins m distinct earlier towns, picked by sampling the list of all road ends so far, which
+     * picks each town in proportion to its degree
+     *
+     * @param random the random numbers
+     * @param sink receives the roads
+     */
+    private void generateScaleFree(SplittableRandom random, RoadSink sink) {
+        int m = Math.max(1, (int) Math.round(averageDegree / 2));
+        int core = Math.min(townCount, m + 1);
+        int[] ends = new int[(int) Math.min(Integer.MAX_VALUE - 8, 2L * m * townCount + 2L * core * core)];
+        int endCount = 0;
+        for (int i = 0; i < core; i++) {
+            for (int j = i + 1; j < core; j++) {
+                sink.road(i, j, weight(random));
+                ends[endCount++] = i;
+                ends[endCount++] = j;
+            }
+        }
+        int[] picked = new int[m];
+        for (int i = core; i < townCount; i++) {
+            int count = 0;
+            while (count < m) {
+                int candidate = (endCount == 0) ? random.nextInt(i) : ends[random.nextInt(endCount)];
+                boolean seen = false;
+                for (int k = 0; k < count; k++) {
+                    seen |= picked[k] == candidate;
+                }
+                if (!seen) {
+                    picked[count++] = candidate;
+                }
+            }
+            for (int k = 0; k < m; k++) {
+                sink.road(i, picked[k], weight(random));
+                ends[endCount++] = i;
+                ends[endCount++] = picked[k];
+            }
+        }
+    }
+
+    /**
+     * returns the position of a town in a random geometric network. each town's position comes
+     * from its own random stream, so it can be recomputed without generating the others
+     *
+     * @param index the town index
+     * @return the x and y coordinates in units
+     */
+    private double[] point(int index) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+        double side = Math.sqrt(townCount);
+        return new double[] {random.nextDouble() * side, random.nextDouble() * side};
+    }
+
+    /**
+     * returns how many miles one coordinate unit is in a random geometric network. a road of
+     * length l gets distance minweight + ceil(l * milesperunit), at most maxweight, so the
+     * straight-line distance between town coordinates never exceeds the road distance and stays
+     * an admissible a* heuristic
+     *
+     * @return the miles per unit
+     */
+    private double milesPerUnit() {
+        return (maxWeight - minWeight) / Math.sqrt(averageDegree / Math.PI);
+    }
+
+    /**
+     * draws a random road distance from the weight range
+     *
+     * @param random the random numbers
+     * @return the distance
+     */
+    private int weight(SplittableRandom random) {
+        return minWeight + random.nextInt(maxWeight - minWeight + 1);
+    }
+
+    /**
+     * writes a road file from the command line
+     *
+     * @param args topology, town count, seed, file, then optional --degree d and --weights min,max
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("usage: java RoadNetworkGenerator grid|random_geometric|random|scale_free"
+                    + " towns seed file [--degree d] [--weights min,max]");
+            System.exit(2);
+        }
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(
+                Topology.valueOf(args[0].toUpperCase(Locale.ROOT)), Integer.parseInt(args[1]),
+                Long.parseLong(args[2]));
+        for (int i = 4; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--degree")) {
+                generator.setAverageDegree(Double.parseDouble(args[i + 1]));
+            } else if (args[i].equals("--weights")) {
+                String[] range = args[i + 1].split(",");
+                generator.setWeightRange(Integer.parseInt(range[0].trim()), Integer.parseInt(range[1].trim()));
+            } else {
+                throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        long roads = generator.writeRoadFile(new File(args[3]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d towns, %d roads written to %s in %.1f s%n", generator.townCount(), roads, args[3],
+                seconds);
+    }
+
+    /**
+     * formats roads as road file lines into a byte buffer
+     */
+    private static final class LineWriter implements RoadSink {
+
+        /**
+         * the stream the lines go to
+         */
+        private final OutputStream out;
+
+        /**
+         * the lines not yet written to the stream
+         */
+        private final byte[] buffer = new byte[1 << 16];
+
+        /**
+         * the number of bytes used in the buffer
+         */
+        private int position;
+
+        /**
+         * the number of roads written so far, also the number in the next road's name
+         */
+        private long roadCount;
+
+        /**
+         * creates a writer
+         *
+         * @param out the stream to write to
+         */
+        LineWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * writes one line "Road_n,weight;Town_first;Town_second"
+         *
+         * @param first the index of one town
+         * @param second the index of the other town
+         * @param weight the distance of the road
+         */
+        @Override
+        public void road(int first, int second, int weight) {
+            if (position > buffer.length - 128) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            ascii("Road_");
+            number(roadCount++);
+            buffer[position++] = ',';
+            number(weight);
+            ascii(";Town_");
+            number(first);
+            ascii(";Town_");
+            number(second);
+            buffer[position++] = '\n';
+        }
+
+        /**
+         * writes the buffered lines to the stream
+         *
+         * @throws IOException if the stream cannot be written
+         */
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+
+        /**
+         * appends an ascii string to the buffer
+         *
+         * @param text the string
+         */
+        private void ascii(String text) {
+            for (int i = 0; i < text.length(); i++) {
+                buffer[position++] = (byte) text.charAt(i);
+            }
+        }
+
+        /**
+         * appends a non-negative number in decimal to the buffer
+         *
+         * @param value the number
+         */
+        private void number(long value) {
+            int length = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                length++;
+            }
+            position += length;
+            for (int i = position - 1; i >= position - length; i--) {
+                buffer[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+        }
+    }
+
+    /**
+     * rounds a count down to the nearest square number, at least 1
+     *
+     * @param count the count
+     * @return the square number
+     */
+    private static int square(int count) {
+        int side = Math.max(1, (int) Math.sqrt(count));
+        return side * side;
+    }
+}
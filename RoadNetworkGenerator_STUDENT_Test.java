@@ -0,0 +1,102 @@
+import static org.junit.Assert.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class RoadNetworkGenerator_STUDENT_Test {
+
+    private static List<String> roads(RoadNetworkGenerator generator) {
+        List<String> roads = new ArrayList<>();
+        generator.generate((first, second, weight) -> roads.add(first + "-" + second + ":" + weight));
+        return roads;
+    }
+
+    @Test
+    public void testSameSeedSameNetwork() {
+        for (RoadNetworkGenerator.Topology topology : RoadNetworkGenerator.Topology.values()) {
+            List<String> first = roads(new RoadNetworkGenerator(topology, 500, 7));
+            assertFalse(first.isEmpty());
+            assertEquals(first, roads(new RoadNetworkGenerator(topology, 500, 7)));
+            assertNotEquals(first, roads(new RoadNetworkGenerator(topology, 500, 8)));
+        }
+    }
+
+    @Test
+    public void testGrid() {
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(RoadNetworkGenerator.Topology.GRID, 110, 1);
+        assertEquals(100, generator.townCount());
+        Graph graph = generator.buildGraph();
+        assertEquals(100, graph.vertexSet().size());
+        assertEquals(2 * 10 * 9, graph.edgeSet().size());
+        assertEquals(4, graph.edgesOf(graph.town("Town_55")).size());
+        assertEquals(2, graph.edgesOf(graph.town("Town_0")).size());
+    }
+
+    @Test
+    public void testDegreesAndWeights() {
+        for (RoadNetworkGenerator.Topology topology : RoadNetworkGenerator.Topology.values()) {
+            if (topology == RoadNetworkGenerator.Topology.GRID) {
+                continue;
+            }
+            RoadNetworkGenerator generator = new RoadNetworkGenerator(topology, 4000, 3);
+            generator.setAverageDegree(8);
+            generator.setWeightRange(5, 20);
+            Set<String> pairs = new HashSet<>();
+            int[] count = new int[1];
+            generator.generate((first, second, weight) -> {
+                assertTrue(first != second);
+                assertTrue(weight >= 5 && weight <= 20);
+                assertTrue(pairs.add(Math.min(first, second) + "-" + Math.max(first, second)));
+                count[0]++;
+            });
+            double degree = 2.0 * count[0] / 4000;
+            assertTrue(topology + " " + degree, degree > 6.5 && degree < 9.5);
+        }
+    }
+
+    @Test
+    public void testStraightLineIsAdmissible() {
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(RoadNetworkGenerator.Topology.RANDOM_GEOMETRIC, 2000, 5);
+        Graph graph = generator.buildGraph();
+        for (Road road : graph.edgeSet()) {
+            Town a = road.getSource();
+            Town b = road.getDestination();
+            assertTrue(Math.hypot(a.getX() - b.getX(), a.getY() - b.getY()) <= road.getWeight());
+        }
+        Town from = graph.town("Town_0");
+        Town to = graph.town("Town_1999");
+        int expected = graph.distance(from, to);
+        graph.setHeuristic(DistanceHeuristic.straightLine(1.0));
+        graph.setRoutingMode(RoutingMode.ASTAR);
+        assertEquals(expected, graph.route(from, to).totalDistance());
+    }
+
+    @Test
+    public void testRoadFileMatchesGraph() throws Exception {
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(RoadNetworkGenerator.Topology.SCALE_FREE, 300, 11);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long written = generator.writeRoads(bytes);
+        String[] lines = new String(bytes.toByteArray(), StandardCharsets.US_ASCII).split("\n");
+        assertEquals(written, lines.length);
+        assertTrue(lines[0].matches("Road_0,\\d+;Town_\\d+;Town_\\d+"));
+
+        File file = File.createTempFile("generated", ".txt");
+        try {
+            assertEquals(written, generator.writeRoadFile(file));
+            TownGraphManager manager = new TownGraphManager();
+            manager.populateTownGraph(file);
+            Graph graph = generator.buildGraph();
+            assertEquals(graph.vertexSet().size(), manager.allTowns().size());
+            assertEquals(graph.edgeSet().size(), manager.allRoads().size());
+            assertEquals(graph.distance(graph.town("Town_0"), graph.town("Town_299")),
+                    manager.getDistance("Town_0", "Town_299"));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * this class holds the shortest path searches that run over a graph snapshot. every search
+ * writes into a cleared search state that the caller owns, so searches on different threads
+ * never share anything.
+ *
+ * @author Leul Belay
+ */
+public final class RouteSearch {
+
+    /**
+     * this class only has static methods
+     */
+    private RouteSearch() {
+    }
+
+    /**
+     * runs dijkstra's algorithm from a source. with a target it stops as soon as the target is
+     * settled, otherwise it settles every reachable town
+     *
+     * @param s the snapshot to search
+     * @param sourceId the id of the start town
+     * @param targetId the id of the town to stop at, or -1 to build the full tree
+     * @param state the cleared state to fill
+     * @return the distance to the target, or SearchState.UNREACHED if there is no target or it cannot be reached
+     */
+    public static int dijkstra(GraphSnapshot s, int sourceId, int targetId, SearchState state) {
+        state.update(sourceId, 0, -1, -1);
+
+        IndexedMinHeap priorityQueue = state.heap();
+        priorityQueue.insertOrDecrease(sourceId, 0);
+
+        while (!priorityQueue.isEmpty()) {
+            int current = priorityQueue.poll();
+            int currentDistance = state.distance(current);
+            if (current == targetId) {
+                return currentDistance;
+            }
+            int first = s.firstEdge(current);
+            int end = s.endEdge(current);
+            state.settle(end - first);
+            for (int e = first; e < end; e++) {
+                int neighbor = s.target(e);
+                int newDist = currentDistance + s.weight(e);
+                if (newDist < state.distance(neighbor)) {
+                    state.update(neighbor, newDist, current, s.roadId(e));
+                    priorityQueue.insertOrDecrease(neighbor, newDist);
+                }
+            }
+        }
+        return SearchState.UNREACHED;
+    }
+
+    /**
+     * runs dijkstra's algorithm from a source to a target recording only distances, and stops as
+     * soon as the target is settled
+     *
+     * @param s the snapshot to search
+     * @param sourceId the id of the start town
+     * @param targetId the id of the end town
+     * @param state the cleared state to fill
+     * @return the distance to the target, or SearchState.UNREACHED if it cannot be reached
+     */
+    public static int distance(GraphSnapshot s, int sourceId, int targetId, SearchState state) {
+        state.update(sourceId, 0);
+
+        IndexedMinHeap priorityQueue = state.heap();
+        priorityQueue.insertOrDecrease(sourceId, 0);
+
+        while (!priorityQueue.isEmpty()) {
+            int current = priorityQueue.poll();
+            int currentDistance = state.distance(current);
+            if (current == targetId) {
+                return currentDistance;
+            }
+            int first = s.firstEdge(current);
+            int end = s.endEdge(current);
+            state.settle(end - first);
+            for (int e = first; e < end; e++) {
+                int neighbor = s.target(e);
+                int newDist = currentDistance + s.weight(e);
+                if (newDist < state.distance(neighbor)) {
+                    state.update(neighbor, newDist);
+                    priorityQueue.insertOrDecrease(neighbor, newDist);
+                }
+            }
+        }
+        return SearchState.UNREACHED;
+    }
+
+    /**
+     * runs dijkstra's algorithm from a source until every marked target town is settled or the
+     * reachable part of the graph runs out, so a one-to-many query does not search past its
+     * farthest target
+     *
+     * @param s the snapshot to search
+     * @param sourceId the id of the start town
+     * @param isTarget marks the ids of the target towns
+     * @param targetCount the number of marked ids
+     * @param state the cleared state to fill
+     */
+    public static void dijkstra(GraphSnapshot s, int sourceId, boolean[] isTarget, int targetCount,
+                                SearchState state) {
+        state.update(sourceId, 0, -1, -1);
+
+        IndexedMinHeap priorityQueue = state.heap();
+        priorityQueue.insertOrDecrease(sourceId, 0);
+
+        int remaining = targetCount;
+        while (!priorityQueue.isEmpty()) {
+            int current = priorityQueue.poll();
+            if (isTarget[current] && --remaining == 0) {
+                return;
+            }
+            int currentDistance = state.distance(current);
+            int first = s.firstEdge(current);
+            int end = s.endEdge(current);
+            state.settle(end - first);
+            for (int e = first; e < end; e++) {
+                int neighbor = s.target(e);
+                int newDist = currentDistance + s.weight(e);
+                if (newDist < state.distance(neighbor)) {
+                    state.update(neighbor, newDist, current, s.roadId(e));
+                    priorityQueue.insertOrDecrease(neighbor, newDist);
+                }
+            }
+        }
+    }
+
+    /**
+     * runs a* from a source to a target. the frontier is ordered by distance so far plus the
+     * heuristic's estimate of the distance left, and the search stops when the target is settled.
+     * a town whose distance improves after it was settled is put back in the frontier, so an
+     * admissible heuristic is enough even if it is not consistent
+     *
+     * @param s the snapshot to search
+     * @param sourceId the id of the start town
+     * @param targetId the id of the end town
+     * @param heuristic the lower bound on the distance left
+     * @param state the cleared state to fill
+     * @return the distance to the target, or SearchState.UNREACHED if it cannot be reached
+     */
+    public static int aStar(GraphSnapshot s, int sourceId, int targetId, DistanceHeuristic heuristic,
+                            SearchState state) {
+        state.update(sourceId, 0, -1, -1);
+
+        IndexedMinHeap priorityQueue = state.heap();
+        priorityQueue.insertOrDecrease(sourceId, heuristic.estimate(s, sourceId, targetId));
+
+        while (!priorityQueue.isEmpty()) {
+            int current = priorityQueue.poll();
+            int currentDistance = state.distance(current);
+            if (current == targetId) {
+                return currentDistance;
+            }
+            int first = s.firstEdge(current);
+            int end = s.endEdge(current);
+            state.settle(end - first);
+            for (int e = first; e < end; e++) {
+                int neighbor = s.target(e);
+                int newDist = currentDistance + s.weight(e);
+                if (newDist < state.distance(neighbor)) {
+                    state.update(neighbor, newDist, current, s.roadId(e));
+                    priorityQueue.insertOrDecrease(neighbor, newDist + heuristic.estimate(s, neighbor, targetId));
+                }
+            }
+        }
+        return SearchState.UNREACHED;
+    }
+
+    /**
+     * runs dijkstra's algorithm from the source and the target at the same time, always growing
+     * the side with the smaller frontier, and stops once no shorter path through an unsettled town
+     * can exist
+     *
+     * @param s the snapshot to search
+     * @param sourceId the id of the start town
+     * @param targetId the id of the end town
+     * @param forward the cleared state for the search from the source
+     * @param backward the cleared state for the search from the target
+     * @return the id of the town where the shortest path meets, or -1 if the target cannot be reached
+     */
+    public static int bidirectional(GraphSnapshot s, int sourceId, int targetId,
+                                    SearchState forward, SearchState backward) {
+        forward.update(sourceId, 0, -1, -1);
+        backward.update(targetId, 0, -1, -1);
+        IndexedMinHeap forwardQueue = forward.heap();
+        IndexedMinHeap backwardQueue = backward.heap();
+        forwardQueue.insertOrDecrease(sourceId, 0);
+        backwardQueue.insertOrDecrease(targetId, 0);
+
+        long best = (sourceId == targetId) ? 0 : Long.MAX_VALUE;
+        int meeting = (sourceId == targetId) ? sourceId : -1;
+
+        while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()) {
+            if ((long) forwardQueue.peekKey() + backwardQueue.peekKey() >= best) {
+                break;
+            }
+            boolean growForward = forwardQueue.size() <= backwardQueue.size();
+            SearchState side = growForward ? forward : backward;
+            SearchState other = growForward ? backward : forward;
+            IndexedMinHeap queue = side.heap();
+
+            int current = queue.poll();
+            int currentDistance = side.distance(current);
+            int first = s.firstEdge(current);
+            int end = s.endEdge(current);
+            side.settle(end - first);
+            for (int e = first; e < end; e++) {
+                int neighbor = s.target(e);
+                int newDist = currentDistance + s.weight(e);
+                if (newDist < side.distance(neighbor)) {
+                    side.update(neighbor, newDist, current, s.roadId(e));
+                    queue.insertOrDecrease(neighbor, newDist);
+                }
+                int otherDistance = other.distance(neighbor);
+                if (otherDistance != SearchState.UNREACHED) {
+                    long candidate = (long) side.distance(neighbor) + otherDistance;
+                    if (candidate < best) {
+                        best = candidate;
+                        meeting = neighbor;
+                    }
+                }
+            }
+        }
+        return meeting;
+    }
+
+    /**
+     * builds the route to a town from the predecessors a search left in state
+     *
+     * @param s the snapshot that was searched
+     * @param state the finished search
+     * @param targetId the id of the end town
+     * @return the route, or PathResult.NOT_FOUND if the search did not reach the town
+     */
+    public static PathResult path(GraphSnapshot s, SearchState state, int targetId) {
+        if (state.distance(targetId) == SearchState.UNREACHED) {
+            return PathResult.NOT_FOUND;
+        }
+        int hops = 0;
+        for (int v = targetId; state.previousVertex(v) >= 0; v = state.previousVertex(v)) {
+            hops++;
+        }
+        int[] towns = new int[hops + 1];
+        int[] roads = new int[hops];
+        int current = targetId;
+        for (int i = hops; i > 0; i--) {
+            towns[i] = current;
+            roads[i - 1] = state.previousRoad(current);
+            current = state.previousVertex(current);
+        }
+        towns[0] = current;
+        return PathResult.of(s, towns, roads);
+    }
+
+    /**
+     * builds the route of a finished bidirectional search: the forward predecessors from the source
+     * to the meeting town, then the backward predecessors from the meeting town to the target
+     *
+     * @param s the snapshot that was searched
+     * @param forward the finished search from the source
+     * @param backward the finished search from the target
+     * @param meeting the meeting town returned by bidirectional, or -1
+     * @return the route, or PathResult.NOT_FOUND if the searches did not meet
+     */
+    public static PathResult path(GraphSnapshot s, SearchState forward, SearchState backward, int meeting) {
+        if (meeting < 0) {
+            return PathResult.NOT_FOUND;
+        }
+        int forwardHops = 0;
+        for (int v = meeting; forward.previousVertex(v) >= 0; v = forward.previousVertex(v)) {
+            forwardHops++;
+        }
+        int hops = forwardHops;
+        for (int v = meeting; backward.previousVertex(v) >= 0; v = backward.previousVertex(v)) {
+            hops++;
+        }
+        int[] towns = new int[hops + 1];
+        int[] roads = new int[hops];
+        int current = meeting;
+        for (int i = forwardHops; i > 0; i--) {
+            towns[i] = current;
+            roads[i - 1] = forward.previousRoad(current);
+            current = forward.previousVertex(current);
+        }
+        towns[0] = current;
+        current = meeting;
+        for (int i = forwardHops; i < hops; i++) {
+            roads[i] = backward.previousRoad(current);
+            current = backward.previousVertex(current);
+            towns[i + 1] = current;
+        }
+        return PathResult.of(s, towns, roads);
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * this enum lists the ways graph.shortestpath can search for a route.
+ *
+ * @author Leul Belay
+ */
+public enum RoutingMode {
+
+    /**
+     * computes the full shortest path tree of the source and caches it, best when many queries
+     * start from the same few towns
+     */
+    CACHED_TREE,
+
+    /**
+     * runs dijkstra's algorithm from the source and stops as soon as the destination is settled
+     */
+    POINT_TO_POINT,
+
+    /**
+     * runs dijkstra's algorithm from both ends at once and stops when the two searches meet
+     */
+    BIDIRECTIONAL,
+
+    /**
+     * runs a* from the source, guided by the heuristic set on the graph
+     */
+    ASTAR,
+
+    /**
+     * runs a* from the source, guided by the graph's landmark tables
+     */
+    ALT,
+
+    /**
+     * answers from the graph's contraction hierarchy, which is built on first use after every change
+     */
+    CONTRACTION_HIERARCHY
+}
@@ -0,0 +1,281 @@
+/**
+ * this class represents the scratch state of one shortest path search: tentative distances,
+ * predecessors and the frontier heap, all indexed by the dense town ids of a graph snapshot.
+ * each thread reuses its own instance, so parallel searches never share state and a search
+ * only pays for resetting the towns it actually touched.
+ *
+ * @author Leul Belay
+ */
+import java.util.Arrays;
+
+public class SearchState {
+
+    /**
+     * the value used for towns that have not been reached
+     */
+    public static final int UNREACHED = Integer.MAX_VALUE;
+
+    /**
+     * local holds the reusable state of each thread
+     */
+    private static final ThreadLocal<SearchState> LOCAL = ThreadLocal.withInitial(() -> new SearchState(0));
+
+    /**
+     * reverselocal holds each thread's second state, used by the backward half of bidirectional searches
+     */
+    private static final ThreadLocal<SearchState> REVERSE_LOCAL = ThreadLocal.withInitial(() -> new SearchState(0));
+
+    /**
+     * distances holds the tentative distance of each town
+     */
+    private int[] distances;
+
+    /**
+     * previousvertices holds the town that comes before each town on the best known path, or -1
+     */
+    private int[] previousVertices;
+
+    /**
+     * previousroads holds the road id used to reach each town on the best known path, or -1
+     */
+    private int[] previousRoads;
+
+    /**
+     * touched holds the ids of the towns whose entries were changed since the last reset
+     */
+    private int[] touched;
+
+    /**
+     * the number of ids in touched
+     */
+    private int touchedCount;
+
+    /**
+     * the frontier of the search
+     */
+    private IndexedMinHeap heap;
+
+    /**
+     * the number of towns the search settled since the last reset
+     */
+    private int settledCount;
+
+    /**
+     * the number of roads the search looked at from settled towns since the last reset
+     */
+    private int relaxedCount;
+
+    /**
+     * the number of times the state was prepared for a search, so the query metrics can tell
+     * whether a query used it
+     */
+    private long generation;
+
+    /**
+     * creates a state for searches over at most capacity towns
+     *
+     * @param capacity the number of towns
+     */
+    public SearchState(int capacity) {
+        allocate(capacity);
+    }
+
+    /**
+     * returns the current thread's state, cleared and large enough for the given number of towns
+     *
+     * @param vertexCount the number of towns in the snapshot that will be searched
+     * @return the thread's reusable state
+     */
+    public static SearchState forCurrentThread(int vertexCount) {
+        SearchState state = LOCAL.get();
+        state.prepare(vertexCount);
+        return state;
+    }
+
+    /**
+     * returns the current thread's second state, for searches that need two at once
+     *
+     * @param vertexCount the number of towns in the snapshot that will be searched
+     * @return the thread's second reusable state
+     */
+    public static SearchState reverseForCurrentThread(int vertexCount) {
+        SearchState state = REVERSE_LOCAL.get();
+        state.prepare(vertexCount);
+        return state;
+    }
+
+    /**
+     * returns the current thread's state as the last search left it, without clearing it
+     *
+     * @return the thread's reusable state
+     */
+    static SearchState peekCurrentThread() {
+        return LOCAL.get();
+    }
+
+    /**
+     * returns the current thread's second state as the last search left it, without clearing it
+     *
+     * @return the thread's second reusable state
+     */
+    static SearchState peekReverseForCurrentThread() {
+        return REVERSE_LOCAL.get();
+    }
+
+    /**
+     * clears the state and grows it if it cannot hold the given number of towns
+     *
+     * @param vertexCount the number of towns
+     */
+    public void prepare(int vertexCount) {
+        generation++;
+        if (vertexCount > distances.length) {
+            allocate(Math.max(vertexCount, distances.length * 2));
+        } else {
+            reset();
+        }
+    }
+
+    /**
+     * puts every touched town back to unreached and empties the heap
+     */
+    public void reset() {
+        for (int i = 0; i < touchedCount; i++) {
+            int v = touched[i];
+            distances[v] = UNREACHED;
+            previousVertices[v] = -1;
+            previousRoads[v] = -1;
+        }
+        touchedCount = 0;
+        settledCount = 0;
+        relaxedCount = 0;
+        heap.clear();
+    }
+
+    /**
+     * returns the tentative distance of a town
+     *
+     * @param v the town id
+     * @return the distance or UNREACHED
+     */
+    public int distance(int v) {
+        return distances[v];
+    }
+
+    /**
+     * returns the town before v on the best known path
+     *
+     * @param v the town id
+     * @return the previous town id or -1
+     */
+    public int previousVertex(int v) {
+        return previousVertices[v];
+    }
+
+    /**
+     * returns the road used to reach v on the best known path
+     *
+     * @param v the town id
+     * @return the road id or -1
+     */
+    public int previousRoad(int v) {
+        return previousRoads[v];
+    }
+
+    /**
+     * records a new best distance for a town
+     *
+     * @param v the town id
+     * @param distance the new distance
+     * @param previous the town it was reached from, or -1
+     * @param road the road it was reached by, or -1
+     */
+    public void update(int v, int distance, int previous, int road) {
+        if (distances[v] == UNREACHED) {
+            touched[touchedCount++] = v;
+        }
+        distances[v] = distance;
+        previousVertices[v] = previous;
+        previousRoads[v] = road;
+    }
+
+    /**
+     * records a new best distance for a town without its predecessor, for searches that only
+     * need distances
+     *
+     * @param v the town id
+     * @param distance the new distance
+     */
+    public void update(int v, int distance) {
+        if (distances[v] == UNREACHED) {
+            touched[touchedCount++] = v;
+        }
+        distances[v] = distance;
+    }
+
+    /**
+     * counts a settled town and the roads the search is about to look at from it. searches call
+     * this once per settled town rather than once per road, so it costs next to nothing
+     *
+     * @param roadCount the number of roads leaving the town
+     */
+    public void settle(int roadCount) {
+        settledCount++;
+        relaxedCount += roadCount;
+    }
+
+    /**
+     * returns the number of towns settled since the last reset
+     *
+     * @return the settled count
+     */
+    public int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * returns the number of roads looked at from settled towns since the last reset
+     *
+     * @return the relaxed count
+     */
+    public int relaxedCount() {
+        return relaxedCount;
+    }
+
+    /**
+     * returns how many times the state has been prepared for a search
+     *
+     * @return the generation
+     */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * returns the frontier heap of the search
+     *
+     * @return the heap
+     */
+    public IndexedMinHeap heap() {
+        return heap;
+    }
+
+    /**
+     * replaces the arrays with fresh ones of the given capacity
+     *
+     * @param capacity the number of towns
+     */
+    private void allocate(int capacity) {
+        distances = new int[capacity];
+        previousVertices = new int[capacity];
+        previousRoads = new int[capacity];
+        touched = new int[capacity];
+        touchedCount = 0;
+        settledCount = 0;
+        relaxedCount = 0;
+        Arrays.fill(distances, UNREACHED);
+        Arrays.fill(previousVertices, -1);
+        Arrays.fill(previousRoads, -1);
+        heap = new IndexedMinHeap(capacity);
+    }
+}
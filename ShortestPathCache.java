@@ -0,0 +1,137 @@
+/**
+ * this class represents a size-bounded, least-recently-used cache of shortest path trees keyed by
+ * their source town. the graph clears it on every change, and it counts hits and misses so the
+ * hit rate of hot sources can be watched.
+ *
+ * @author Leul Belay
+ */
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ShortestPathCache {
+
+    /**
+     * the default number of trees kept
+     */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    /**
+     * the most trees the cache keeps before dropping the least recently used one
+     */
+    private final int maxSize;
+
+    /**
+     * trees holds the cached trees in access order
+     */
+    private final LinkedHashMap<Town, ShortestPathTree> trees;
+
+    /**
+     * the number of lookups that found a tree
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * the number of lookups that did not find a tree
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * creates a cache that keeps at most maxsize trees, 0 turns caching off
+     *
+     * @param maxSize the most trees to keep
+     */
+    public ShortestPathCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("cache size must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.trees = new LinkedHashMap<Town, ShortestPathTree>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Town, ShortestPathTree> eldest) {
+                return size() > ShortestPathCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * returns the cached tree for a source if it was computed on the given snapshot
+     *
+     * @param source the source town
+     * @param snapshot the current snapshot of the graph
+     * @return the tree or null on a miss
+     */
+    public ShortestPathTree get(Town source, GraphSnapshot snapshot) {
+        ShortestPathTree tree;
+        synchronized (trees) {
+            tree = trees.get(source);
+        }
+        if (tree == null || tree.snapshot() != snapshot) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return tree;
+    }
+
+    /**
+     * adds a tree to the cache, dropping the least recently used tree if the cache is full
+     *
+     * @param tree the tree to add
+     */
+    public void put(ShortestPathTree tree) {
+        if (maxSize == 0) {
+            return;
+        }
+        synchronized (trees) {
+            trees.put(tree.source(), tree);
+        }
+    }
+
+    /**
+     * removes every tree from the cache
+     */
+    public void invalidate() {
+        synchronized (trees) {
+            trees.clear();
+        }
+    }
+
+    /**
+     * returns the number of trees in the cache
+     *
+     * @return the size
+     */
+    public int size() {
+        synchronized (trees) {
+            return trees.size();
+        }
+    }
+
+    /**
+     * returns the most trees the cache keeps
+     *
+     * @return the maximum size
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * returns the number of lookups that found a tree
+     *
+     * @return the hit count
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * returns the number of lookups that did not find a tree
+     *
+     * @return the miss count
+     */
+    public long misses() {
+        return misses.sum();
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * this class represents an immutable shortest path tree computed by dijkstra's algorithm from one
+ * source town over a graph snapshot. it keeps the distance, previous town and previous road of
+ * every town, so a path to any destination can be read back in O(path length).
+ *
+ * @author Leul Belay
+ */
+import java.util.ArrayList;
+
+public class ShortestPathTree {
+
+    /**
+     * the snapshot the tree was computed on
+     */
+    private final GraphSnapshot snapshot;
+
+    /**
+     * the id of the source town
+     */
+    private final int sourceId;
+
+    /**
+     * distances holds the distance from the source to each town, or SearchState.UNREACHED
+     */
+    private final int[] distances;
+
+    /**
+     * previousvertices holds the town before each town on its shortest path, or -1
+     */
+    private final int[] previousVertices;
+
+    /**
+     * previousroads holds the road id used to reach each town on its shortest path, or -1
+     */
+    private final int[] previousRoads;
+
+    /**
+     * creates a tree by copying the finished search in state
+     *
+     * @param snapshot the snapshot that was searched
+     * @param sourceId the id of the source town
+     * @param state the state of the finished search
+     */
+    public ShortestPathTree(GraphSnapshot snapshot, int sourceId, SearchState state) {
+        this.snapshot = snapshot;
+        this.sourceId = sourceId;
+        int vertexCount = snapshot.vertexCount();
+        distances = new int[vertexCount];
+        previousVertices = new int[vertexCount];
+        previousRoads = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            distances[v] = state.distance(v);
+            previousVertices[v] = state.previousVertex(v);
+            previousRoads[v] = state.previousRoad(v);
+        }
+    }
+
+    /**
+     * returns the snapshot the tree was computed on
+     *
+     * @return the snapshot
+     */
+    public GraphSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * returns the source town of the tree
+     *
+     * @return the source town
+     */
+    public Town source() {
+        return snapshot.town(sourceId);
+    }
+
+    /**
+     * returns the shortest distance from the source to a town
+     *
+     * @param destination the town
+     * @return the distance, or SearchState.UNREACHED if the town cannot be reached or is not in the graph
+     */
+    public int distanceTo(Town destination) {
+        int id = snapshot.idOf(destination);
+        return (id < 0) ? SearchState.UNREACHED : distances[id];
+    }
+
+    /**
+     * builds the shortest route from the source to a destination
+     *
+     * @param destination the end town
+     * @return the route, or PathResult.NOT_FOUND if the town cannot be reached or is not in the graph
+     */
+    public PathResult routeTo(Town destination) {
+        int target = snapshot.idOf(destination);
+        if (target < 0 || distances[target] == SearchState.UNREACHED) {
+            return PathResult.NOT_FOUND;
+        }
+        int hops = 0;
+        for (int v = target; previousVertices[v] >= 0; v = previousVertices[v]) {
+            hops++;
+        }
+        int[] towns = new int[hops + 1];
+        int[] roads = new int[hops];
+        int current = target;
+        for (int i = hops; i > 0; i--) {
+            towns[i] = current;
+            roads[i - 1] = previousRoads[current];
+            current = previousVertices[current];
+        }
+        towns[0] = current;
+        return PathResult.of(snapshot, towns, roads);
+    }
+
+    /**
+     * builds the shortest path from the source to a destination
+     *
+     * @param destination the end town
+     * @return arraylist of road strings in the format "town1 via roadName to town2 distance mi"
+     */
+    public ArrayList<String> pathTo(Town destination) {
+        return routeTo(destination).toList();
+    }
+}
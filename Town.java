@@ -1,6 +1,7 @@
 /**
- * this class represents a town with a name. it implements comparable so it can be used in sorting
- * and priority queues.
+ * this class represents a town with a name and optional map coordinates. it implements comparable
+ * so it can be used in sorting and priority queues. two towns are equal when their names are equal,
+ * the coordinates are only used to guide route searches.
  *
  * @author Leul Belay
  */
@@ -13,6 +14,31 @@ public class Town implements Comparable<Town> {
      */
     private String name;
 
+    /**
+     * the x coordinate of this town, only meaningful if hascoordinates is true
+     */
+    private double x;
+
+    /**
+     * the y coordinate of this town, only meaningful if hascoordinates is true
+     */
+    private double y;
+
+    /**
+     * whether this town was given coordinates
+     */
+    private boolean hasCoordinates;
+
+    /**
+     * the hash code of the name, computed once
+     */
+    private final int hash;
+
+    /**
+     * the dense id the graph holding this town gave it, or -1 if it is not in a graph
+     */
+    private int id = -1;
+
     /**
      * creates a new town with a given name
      *
@@ -20,15 +46,35 @@ public class Town implements Comparable<Town> {
      */
     public Town(String name) {
         this.name = name;
+        this.hash = Objects.hash(name);
+    }
+
+    /**
+     * creates a new town with a given name and map coordinates
+     *
+     * @param name the name of the town
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    public Town(String name, double x, double y) {
+        this.name = name;
+        this.x = x;
+        this.y = y;
+        this.hasCoordinates = true;
+        this.hash = Objects.hash(name);
     }
 
     /**
-     * copy constructor that creates a new town with the same name
+     * copy constructor that creates a new town with the same name and coordinates
      *
      * @param templateTown the existing town to copy from
      */
     public Town(Town templateTown) {
         this.name = templateTown.name;
+        this.x = templateTown.x;
+        this.y = templateTown.y;
+        this.hasCoordinates = templateTown.hasCoordinates;
+        this.hash = templateTown.hash;
     }
 
     /**
@@ -40,6 +86,51 @@ public class Town implements Comparable<Town> {
         return name;
     }
 
+    /**
+     * checks if this town has map coordinates
+     *
+     * @return true if the town was created with coordinates
+     */
+    public boolean hasCoordinates() {
+        return hasCoordinates;
+    }
+
+    /**
+     * gets the x coordinate of the town
+     *
+     * @return the x coordinate, 0 if the town has no coordinates
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * gets the y coordinate of the town
+     *
+     * @return the y coordinate, 0 if the town has no coordinates
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * gets the dense id the graph holding this town gave it
+     *
+     * @return the id, or -1 if the town is not in a graph
+     */
+    int getId() {
+        return id;
+    }
+
+    /**
+     * sets the dense id of this town, only called by the graph that adds or removes it
+     *
+     * @param id the id, or -1
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * compares two towns by name
      *
@@ -63,7 +154,7 @@ public class Town implements Comparable<Town> {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         Town other = (Town) obj;
-        return name.equals(other.name);
+        return hash == other.hash && name.equals(other.name);
     }
 
     /**
@@ -73,7 +164,7 @@ public class Town implements Comparable<Town> {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(name);
+        return hash;
     }
 
     /**
@@ -7,9 +7,11 @@
  */
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Scanner;
+import java.util.List;
 
 public class TownGraphManager implements TownGraphManagerInterface {
 
@@ -32,11 +34,21 @@ public class TownGraphManager implements TownGraphManagerInterface {
      * @param town2 the second town
      * @param weight the distance of the road
      * @param roadName the name of the road
-     * @return true if the road was successfully added
+     * @return true if the road was successfully added, false if either town is not in the graph,
+     *         including a town another thread deleted meanwhile
      */
     @Override
     public boolean addRoad(String town1, String town2, int weight, String roadName) {
-        return graph.addEdge(new Town(town1), new Town(town2), weight, roadName) != null;
+        Town source = graph.town(town1);
+        Town destination = graph.town(town2);
+        if (source == null || destination == null) {
+            return false;
+        }
+        try {
+            return graph.addEdge(source, destination, weight, roadName) != null;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 
     /**
@@ -48,7 +60,12 @@ public class TownGraphManager implements TownGraphManagerInterface {
      */
     @Override
     public String getRoad(String town1, String town2) {
-        Road road = graph.getEdge(new Town(town1), new Town(town2));
+        Town source = graph.town(town1);
+        Town destination = graph.town(town2);
+        if (source == null || destination == null) {
+            return null;
+        }
+        Road road = graph.getEdge(source, destination);
         if (road != null) {
             return road.getName();
         }
@@ -63,23 +80,18 @@ public class TownGraphManager implements TownGraphManagerInterface {
      */
     @Override
     public boolean addTown(String v) {
-        return graph.addVertex(new Town(v));
+        return graph.town(v) == null && graph.addVertex(new Town(v));
     }
 
     /**
-     * returns the town object for the given name
+     * returns the town object for the given name, looked up in the graph's name index
      *
      * @param name the town's name
      * @return the town object or null if not found
      */
     @Override
     public Town getTown(String name) {
-        for (Town t : graph.vertexSet()) {
-            if (t.getName().equals(name)) {
-                return t;
-            }
-        }
-        return null;
+        return graph.town(name);
     }
 
     /**
@@ -90,7 +102,7 @@ public class TownGraphManager implements TownGraphManagerInterface {
      */
     @Override
     public boolean containsTown(String v) {
-        return graph.containsVertex(new Town(v));
+        return graph.town(v) != null;
     }
 
     /**
@@ -102,7 +114,9 @@ public class TownGraphManager implements TownGraphManagerInterface {
      */
     @Override
     public boolean containsRoadConnection(String town1, String town2) {
-        return graph.containsEdge(new Town(town1), new Town(town2));
+        Town source = graph.town(town1);
+        Town destination = graph.town(town2);
+        return source != null && destination != null && graph.containsEdge(source, destination);
     }
 
     /**
@@ -130,9 +144,11 @@ public class TownGraphManager implements TownGraphManagerInterface {
      */
     @Override
     public boolean deleteRoadConnection(String town1, String town2, String roadName) {
-        Town source = new Town(town1);
-        Town destination = new Town(town2);
-
+        Town source = graph.town(town1);
+        Town destination = graph.town(town2);
+        if (source == null || destination == null) {
+            return false;
+        }
         Road road = graph.getEdge(source, destination);
         if (road != null && road.getName().equals(roadName)) {
             Road removed = graph.removeEdge(source, destination, road.getWeight(), road.getName());
@@ -149,7 +165,8 @@ public class TownGraphManager implements TownGraphManagerInterface {
      */
     @Override
     public boolean deleteTown(String v) {
-        return graph.removeVertex(new Town(v));
+        Town town = graph.town(v);
+        return town != null && graph.removeVertex(town);
     }
 
     /**
@@ -176,34 +193,173 @@ public class TownGraphManager implements TownGraphManagerInterface {
      */
     @Override
     public ArrayList<String> getPath(String town1, String town2) {
-        return graph.shortestPath(new Town(town1), new Town(town2));
+        Town source = graph.town(town1);
+        Town destination = graph.town(town2);
+        if (source == null || destination == null) {
+            return new ArrayList<>();
+        }
+        return graph.shortestPath(source, destination);
+    }
+
+    /**
+     * finds the shortest route between two towns without formatting it, for callers that only
+     * need the distance or the roads
+     *
+     * @param town1 name of the start town
+     * @param town2 name of the destination town
+     * @return the route, or PathResult.NOT_FOUND if the towns are not connected or not in the graph
+     */
+    public PathResult getRoute(String town1, String town2) {
+        Town source = graph.town(town1);
+        Town destination = graph.town(town2);
+        if (source == null || destination == null) {
+            return PathResult.NOT_FOUND;
+        }
+        return graph.route(source, destination);
+    }
+
+    /**
+     * returns the road distance between two towns without building the path
+     *
+     * @param town1 name of the start town
+     * @param town2 name of the destination town
+     * @return the distance in miles, or Integer.MAX_VALUE if the towns are not connected or not in the graph
+     */
+    public int getDistance(String town1, String town2) {
+        Town source = graph.town(town1);
+        Town destination = graph.town(town2);
+        if (source == null || destination == null) {
+            return Integer.MAX_VALUE;
+        }
+        return graph.distance(source, destination);
+    }
+
+    /**
+     * lists the towns that can be reached from a town within a distance, nearest first
+     *
+     * @param town name of the start town
+     * @param miles the largest distance to include
+     * @return arraylist of strings in the format "town distance mi", starting with the town itself
+     */
+    public ArrayList<String> getTownsWithin(String town, int miles) {
+        ArrayList<String> towns = new ArrayList<>();
+        Town source = graph.town(town);
+        if (source == null) {
+            return towns;
+        }
+        ReachableTowns reachable = graph.reachableWithin(source, miles);
+        for (int i = 0; i < reachable.size(); i++) {
+            towns.add(reachable.town(i).getName() + " " + reachable.distance(i) + " mi");
+        }
+        return towns;
     }
 
     /**
-     * reads a file line by line to populate the town graph with roads and towns
+     * reads a file line by line to populate the town graph with roads and towns.
+     * each line has the format "road,dist;town1;town2", lines that do not match are skipped
      *
      * @param file the file to read
      * @throws FileNotFoundException if the file doesn't exist
      */
     public void populateTownGraph(File file) throws FileNotFoundException {
-        Scanner scanner = new Scanner(file);
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            String[] parts = line.split(";");
-            if (parts.length != 3) continue;
-
-            String[] roadDetails = parts[0].split(",");
-            if (roadDetails.length != 2) continue;
-
-            String roadName = roadDetails[0].trim();
-            int distance = Integer.parseInt(roadDetails[1].trim());
-            String townName1 = parts[1].trim();
-            String townName2 = parts[2].trim();
-
-            addTown(townName1);
-            addTown(townName2);
-            addRoad(townName1, townName2, distance, roadName);
+        try {
+            loadTownGraph(file);
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        scanner.close();
+    }
+
+    /**
+     * reads a road file into the town graph and reports how the load went
+     *
+     * @param file the file to read
+     * @return the line counts, malformed lines and lines per second of the load
+     * @throws IOException if the file cannot be read
+     */
+    public LoadReport loadTownGraph(File file) throws IOException {
+        return new RoadFileLoader(graph).load(file);
+    }
+
+    /**
+     * reads a road file into the town graph, parsing parts of the file in parallel on the common
+     * fork-join pool, and reports how the load went
+     *
+     * @param file the file to read
+     * @return the line counts, malformed lines and lines per second of the load
+     * @throws IOException if the file cannot be read
+     */
+    public LoadReport loadTownGraphParallel(File file) throws IOException {
+        return new RoadFileLoader(graph).loadParallel(file);
+    }
+
+    /**
+     * writes the town graph to a binary graph file that mappedgraph can open without parsing
+     *
+     * @param file the file to create or overwrite
+     * @throws IOException if the file cannot be written
+     */
+    public void saveBinaryGraph(File file) throws IOException {
+        BinaryGraphWriter.write(graph, file);
+    }
+
+    /**
+     * computes the road distance from every source town to every target town in one batch,
+     * running the searches in parallel
+     *
+     * @param sources names of the towns to start from
+     * @param targets names of the towns to measure to
+     * @return entry [i][j] is the distance in miles from sources.get(i) to targets.get(j), or
+     *         Integer.MAX_VALUE if there is no route or either town is not in the graph
+     */
+    public int[][] getDistanceMatrix(List<String> sources, List<String> targets) {
+        return graph.distanceMatrix(towns(sources), towns(targets));
+    }
+
+    /**
+     * starts a batch of town and road changes. the changes are recorded and only applied when
+     * commit is called, in one pass, so a large delta rebuilds the graph's snapshot, path cache
+     * and routing indexes once instead of once per change
+     *
+     * @return an empty batch for this town graph
+     */
+    public GraphBatch batch() {
+        return new GraphBatch(graph);
+    }
+
+    /**
+     * turns versioned mode of the town graph on or off. in versioned mode road and town changes
+     * publish a new snapshot of the graph, so paths can be queried from many threads while
+     * closures are applied, without locking; see graph.setversioned
+     *
+     * @param versioned true to allow changes while other threads query
+     */
+    public void setVersioned(boolean versioned) {
+        graph.setVersioned(versioned);
+    }
+
+    /**
+     * returns the metrics of the town graph's path queries. turn them on with setenabled(true) and
+     * read them directly, through dump, or over jmx after register
+     *
+     * @return the query metrics
+     */
+    public QueryMetrics getQueryMetrics() {
+        return graph.metrics();
+    }
+
+    /**
+     * looks up the towns with the given names
+     *
+     * @param names the town names
+     * @return the town for each name, null for names not in the graph
+     */
+    private List<Town> towns(List<String> names) {
+        List<Town> towns = new ArrayList<>(names.size());
+        for (String name : names) {
+            towns.add(graph.town(name));
+        }
+        return towns;
     }
 }
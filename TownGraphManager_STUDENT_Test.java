@@ -1,5 +1,6 @@
 import static org.junit.Assert.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -145,4 +146,81 @@ public class TownGraphManager_STUDENT_Test {
         assertEquals("City_10 via Street_8 to City_9 4 mi", path.get(3).trim());
         assertEquals("City_9 via Street_7 to City_6 7 mi", path.get(4).trim());
     }
+
+    @Test
+    public void testGetDistanceMatrix() {
+        int[][] matrix = ((TownGraphManager) graph).getDistanceMatrix(
+                Arrays.asList(town[1], town[6]), Arrays.asList(town[11], town[10], town[6], "City_99"));
+        assertArrayEquals(new int[] {11, 13, 24, Integer.MAX_VALUE}, matrix[0]);
+        assertArrayEquals(new int[] {14, 11, 0, Integer.MAX_VALUE}, matrix[1]);
+    }
+
+    @Test
+    public void testGetDistance() {
+        TownGraphManager manager = (TownGraphManager) graph;
+        assertEquals(24, manager.getDistance(town[1], town[6]));
+        assertEquals(13, manager.getDistance(town[10], town[1]));
+        assertEquals(Integer.MAX_VALUE, manager.getDistance(town[1], "City_99"));
+    }
+
+    @Test
+    public void testGetTownsWithin() {
+        ArrayList<String> towns = ((TownGraphManager) graph).getTownsWithin(town[10], 5);
+        assertEquals(5, towns.size());
+        assertEquals("City_10 0 mi", towns.get(0));
+        assertEquals("City_8 2 mi", towns.get(1));
+        assertEquals("City_11 3 mi", towns.get(2));
+        assertTrue(towns.contains("City_9 4 mi"));
+        assertTrue(towns.contains("City_5 5 mi"));
+    }
+
+    @Test
+    public void testCanonicalTowns() {
+        TownGraphManager manager = (TownGraphManager) graph;
+        Town city5 = manager.getTown(town[5]);
+        assertSame(city5, manager.getTown("City_5"));
+        assertNull(manager.getTown("City_99"));
+        assertFalse(manager.addRoad(town[1], "City_99", 1, "Street_13"));
+        assertNull(manager.getRoad(town[1], "City_99"));
+        assertFalse(manager.containsRoadConnection("City_99", town[1]));
+        assertFalse(manager.deleteRoadConnection("City_99", town[1], "Street_1"));
+        assertTrue(manager.getPath(town[1], "City_99").isEmpty());
+        assertFalse(manager.deleteTown("City_99"));
+        assertTrue(manager.deleteTown(town[5]));
+        assertNull(manager.getTown(town[5]));
+        assertTrue(manager.addTown(town[5]));
+        assertNotSame(city5, manager.getTown(town[5]));
+    }
+
+    @Test
+    public void testBatch() {
+        TownGraphManager manager = (TownGraphManager) graph;
+        assertEquals(24, manager.getDistance(town[1], town[6]));
+        GraphSnapshot before = manager.getRoute(town[1], town[6]).snapshot();
+        GraphBatch batch = manager.batch()
+                .addTown("City_12")
+                .addRoad(town[1], "City_12", 1, "Street_13")
+                .addRoad("City_12", town[6], 1, "Street_14")
+                .deleteRoadConnection(town[1], town[2], "Street_1")
+                .deleteRoadConnection(town[1], town[3], "Wrong_Name")
+                .deleteTown(town[4])
+                .addRoad(town[4], town[5], 1, "Street_15")
+                .addTown(town[1]);
+        assertEquals(8, batch.size());
+        assertEquals("Street_1", manager.getRoad(town[1], town[2]));
+        assertSame(before, manager.getRoute(town[1], town[6]).snapshot());
+
+        assertEquals(5, batch.commit());
+        assertEquals(0, batch.size());
+        assertEquals(2, manager.getDistance(town[1], town[6]));
+        assertNull(manager.getRoad(town[1], town[2]));
+        assertEquals("Street_2", manager.getRoad(town[1], town[3]));
+        assertFalse(manager.containsTown(town[4]));
+        assertTrue(manager.containsTown("City_12"));
+        assertEquals(12, manager.allRoads().size());
+
+        batch.deleteTown("City_12");
+        assertEquals(1, batch.commit());
+        assertEquals(24, manager.getDistance(town[1], town[6]));
+    }
 }
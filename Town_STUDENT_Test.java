@@ -58,4 +58,25 @@ public class Town_STUDENT_Test {
         assertEquals("Laketown", clone.getName());
         assertTrue(tb.equals(clone));
     }
+
+    @Test
+    public void testCoordinates() {
+        assertFalse(ta.hasCoordinates());
+        Town located = new Town("Everwood", 3.5, -2.0);
+        assertTrue(located.hasCoordinates());
+        assertEquals(3.5, located.getX(), 0.0);
+        assertEquals(-2.0, located.getY(), 0.0);
+        assertEquals(ta, located);
+        Town copy = new Town(located);
+        assertTrue(copy.hasCoordinates());
+        assertEquals(-2.0, copy.getY(), 0.0);
+    }
+
+    @Test
+    public void testHashMatchesEquality() {
+        Town copy = new Town(new Town("Hash_Town", 1, 2));
+        assertEquals(new Town("Hash_Town"), copy);
+        assertEquals(new Town("Hash_Town").hashCode(), copy.hashCode());
+        assertNotEquals(new Town("Hash_Town"), new Town("Hash_Town2"));
+    }
 }
@@ -0,0 +1,288 @@
+/**
+ * this class is a small benchmark harness with no outside dependencies. it warms an operation
+ * up, then times it in batches until the measurement time runs out, and reports the throughput,
+ * latency percentiles and bytes allocated per operation. batches grow during warmup until one
+ * takes at least a tenth of a millisecond, so the clock's own cost does not swamp fast operations.
+ *
+ * @author Leul Belay
+ */
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+public final class Benchmark {
+
+    /**
+     * an operation to measure
+     */
+    public interface Workload {
+
+        /**
+         * prepares a batch of calls, not timed. operations that use up their input, such as
+         * removals, rebuild it here
+         *
+         * @param batchSize the number of calls the batch will make
+         * @throws Exception if preparing fails
+         */
+        default void prepare(int batchSize) throws Exception {
+        }
+
+        /**
+         * runs the operation once
+         *
+         * @param index the index of the call within its batch
+         * @return any value derived from the result, so the work cannot be optimized away
+         * @throws Exception if the operation fails
+         */
+        long invoke(int index) throws Exception;
+
+        /**
+         * returns the largest batch the workload can prepare
+         *
+         * @return the batch limit
+         */
+        default int maxBatchSize() {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * the shortest time a calibrated batch should take
+     */
+    private static final long MIN_BATCH_NANOS = 100_000L;
+
+    /**
+     * the most batches kept for the percentiles
+     */
+    private static final int MAX_SAMPLES = 1 << 16;
+
+    /**
+     * how long to warm up each workload
+     */
+    private final long warmupNanos;
+
+    /**
+     * how long to measure each workload
+     */
+    private final long measureNanos;
+
+    /**
+     * the thread bean used to read allocated bytes, or null if the jvm cannot count them
+     */
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * sink adds up the values the workloads return
+     */
+    private long sink;
+
+    /**
+     * creates a harness
+     *
+     * @param warmupMillis how long to warm up each workload
+     * @param measureMillis how long to measure each workload
+     */
+    public Benchmark(long warmupMillis, long measureMillis) {
+        this.warmupNanos = warmupMillis * 1_000_000L;
+        this.measureNanos = measureMillis * 1_000_000L;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threads = (com.sun.management.ThreadMXBean) bean;
+            threads.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threads = null;
+        }
+    }
+
+    /**
+     * warms up and measures a workload
+     *
+     * @param name the name to report
+     * @param workload the operation
+     * @return the measurements
+     * @throws Exception if the workload fails
+     */
+    public Result run(String name, Workload workload) throws Exception {
+        int batchSize = 1;
+        long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            long nanos = batch(workload, batchSize, null);
+            if (nanos < MIN_BATCH_NANOS && batchSize < workload.maxBatchSize()) {
+                batchSize = (int) Math.min((long) batchSize * 2, workload.maxBatchSize());
+            }
+        }
+
+        long[] samples = new long[64];
+        int sampleCount = 0;
+        long operations = 0;
+        long totalNanos = 0;
+        long[] allocated = new long[1];
+        while (totalNanos < measureNanos || sampleCount < 5) {
+            long nanos = batch(workload, batchSize, allocated);
+            totalNanos += nanos;
+            operations += batchSize;
+            if (sampleCount < MAX_SAMPLES) {
+                if (sampleCount == samples.length) {
+                    samples = Arrays.copyOf(samples, sampleCount * 2);
+                }
+                samples[sampleCount++] = nanos / batchSize;
+            }
+        }
+        Arrays.sort(samples, 0, sampleCount);
+        return new Result(name, operations, totalNanos, batchSize, Arrays.copyOf(samples, sampleCount),
+                threads == null ? -1 : allocated[0]);
+    }
+
+    /**
+     * returns the sum of the values the workloads returned, printing it keeps the jit from
+     * dropping their work
+     *
+     * @return the checksum
+     */
+    public long checksum() {
+        return sink;
+    }
+
+    /**
+     * prepares and times one batch
+     *
+     * @param workload the operation
+     * @param batchSize the number of calls
+     * @param allocated if not null, the bytes the batch allocated are added to its first entry
+     * @return the time the calls took in nanoseconds
+     * @throws Exception if the workload fails
+     */
+    private long batch(Workload workload, int batchSize, long[] allocated) throws Exception {
+        workload.prepare(batchSize);
+        long thread = Thread.currentThread().getId();
+        long bytesBefore = (threads != null && allocated != null) ? threads.getThreadAllocatedBytes(thread) : 0;
+        long value = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < batchSize; i++) {
+            value += workload.invoke(i);
+        }
+        long nanos = System.nanoTime() - start;
+        if (threads != null && allocated != null) {
+            allocated[0] += threads.getThreadAllocatedBytes(thread) - bytesBefore;
+        }
+        sink += value;
+        return Math.max(1, nanos);
+    }
+
+    /**
+     * the measurements of one workload
+     */
+    public static final class Result {
+
+        /**
+         * the name of the workload
+         */
+        private final String name;
+
+        /**
+         * the number of measured calls
+         */
+        private final long operations;
+
+        /**
+         * the time the measured calls took
+         */
+        private final long totalNanos;
+
+        /**
+         * the calls per batch
+         */
+        private final int batchSize;
+
+        /**
+         * the average time per call of each batch, sorted
+         */
+        private final long[] sortedSamples;
+
+        /**
+         * the bytes allocated by the measured calls, or -1 if unknown
+         */
+        private final long allocatedBytes;
+
+        /**
+         * creates a result
+         *
+         * @param name the name of the workload
+         * @param operations the number of measured calls
+         * @param totalNanos the time they took
+         * @param batchSize the calls per batch
+         * @param sortedSamples the sorted per-call time of each batch
+         * @param allocatedBytes the bytes allocated, or -1 if unknown
+         */
+        Result(String name, long operations, long totalNanos, int batchSize, long[] sortedSamples,
+               long allocatedBytes) {
+            this.name = name;
+            this.operations = operations;
+            this.totalNanos = totalNanos;
+            this.batchSize = batchSize;
+            this.sortedSamples = sortedSamples;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        /**
+         * returns the calls per second
+         *
+         * @return the throughput
+         */
+        public double opsPerSecond() {
+            return operations * 1e9 / totalNanos;
+        }
+
+        /**
+         * returns a latency percentile. with batches of more than one call this is the percentile
+         * of batch averages, which hides outliers within a batch
+         *
+         * @param percentile 0 to 100
+         * @return the time per call in nanoseconds
+         */
+        public long percentileNanos(double percentile) {
+            int index = (int) Math.ceil(percentile / 100 * sortedSamples.length) - 1;
+            return sortedSamples[Math.max(0, Math.min(sortedSamples.length - 1, index))];
+        }
+
+        /**
+         * returns the bytes allocated per call
+         *
+         * @return the bytes, or -1 if the jvm cannot count them
+         */
+        public double bytesPerOp() {
+            return (allocatedBytes < 0) ? -1 : (double) allocatedBytes / operations;
+        }
+
+        /**
+         * returns the allocation rate while measuring
+         *
+         * @return megabytes per second, or -1 if the jvm cannot count them
+         */
+        public double allocationMbPerSecond() {
+            return (allocatedBytes < 0) ? -1 : allocatedBytes * 1e9 / totalNanos / (1 << 20);
+        }
+
+        /**
+         * returns the header line matching tostring
+         *
+         * @return the column names
+         */
+        public static String header() {
+            return String.format("%-44s %12s %10s %10s %10s %10s %12s %10s %6s", "benchmark", "ops/s",
+                    "p50 us", "p90 us", "p99 us", "max us", "bytes/op", "alloc MB/s", "batch");
+        }
+
+        /**
+         * formats the result as one table row
+         *
+         * @return the row
+         */
+        @Override
+        public String toString() {
+            return String.format("%-44s %12.1f %10.2f %10.2f %10.2f %10.2f %12.1f %10.1f %6d", name, opsPerSecond(),
+                    percentileNanos(50) / 1e3, percentileNanos(90) / 1e3, percentileNanos(99) / 1e3,
+                    percentileNanos(100) / 1e3, bytesPerOp(), allocationMbPerSecond(), batchSize);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/**
+ * this class runs the benchmarks of the graph hot paths: dijkstrashortestpath, point-to-point
+ * shortestpath, getedge, removevertex and populatetowngraph, on generated grid, random geometric
+ * and scale-free networks of several sizes. every network is built from a fixed seed, so two runs
+ * on different versions of the engine measure the same work.
+ *
+ * usage: java GraphBenchmarks [--sizes 1000,10000,100000] [--topologies grid,geometric,random,scalefree]
+ * [--only name] [--warmup ms] [--measure ms] [--seed n]
+ *
+ * @author Leul Belay
+ */
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+public final class GraphBenchmarks {
+
+    /**
+     * the number of random queries each workload cycles through
+     */
+    private static final int QUERY_COUNT = 1024;
+
+    /**
+     * the sizes above which whole-graph workloads are skipped because one call takes seconds
+     */
+    private static final int MAX_LOAD_TOWNS = 1_000_000;
+
+    /**
+     * this class only has static methods
+     */
+    private GraphBenchmarks() {
+    }
+
+    /**
+     * runs the benchmarks and prints one table row per workload
+     *
+     * @param args the options described in the class comment
+     * @throws Exception if a workload fails
+     */
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {1_000, 10_000, 100_000};
+        List<RoadNetworkGenerator.Topology> topologies = new ArrayList<>();
+        String only = null;
+        long warmup = 1_000;
+        long measure = 2_000;
+        long seed = 42;
+        for (int i = 0; i < args.length; i += 2) {
+            String value = (i + 1 < args.length) ? args[i + 1] : "";
+            switch (args[i]) {
+                case "--sizes":
+                    String[] parts = value.split(",");
+                    sizes = new int[parts.length];
+                    for (int k = 0; k < parts.length; k++) {
+                        sizes[k] = Integer.parseInt(parts[k].trim());
+                    }
+                    break;
+                case "--topologies":
+                    for (String name : value.split(",")) {
+                        topologies.add(topology(name.trim()));
+                    }
+                    break;
+                case "--only":
+                    only = value;
+                    break;
+                case "--warmup":
+                    warmup = Long.parseLong(value);
+                    break;
+                case "--measure":
+                    measure = Long.parseLong(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (topologies.isEmpty()) {
+            for (RoadNetworkGenerator.Topology topology : RoadNetworkGenerator.Topology.values()) {
+                topologies.add(topology);
+            }
+        }
+
+        Benchmark benchmark = new Benchmark(warmup, measure);
+        System.out.println(Benchmark.Result.header());
+        for (RoadNetworkGenerator.Topology topology : topologies) {
+            for (int size : sizes) {
+                RoadNetworkGenerator generator = new RoadNetworkGenerator(topology, size, seed);
+                runAll(benchmark, generator, topology.name().toLowerCase(Locale.ROOT) + "/" + generator.townCount(),
+                        only, seed);
+            }
+        }
+        System.out.println("checksum " + benchmark.checksum());
+    }
+
+    /**
+     * runs every workload on one network
+     *
+     * @param benchmark the harness
+     * @param generator the network
+     * @param label the topology and size for the row names
+     * @param only if not null, only workloads whose name contains it run
+     * @param seed the seed of the random queries
+     * @throws Exception if a workload fails
+     */
+    private static void runAll(Benchmark benchmark, RoadNetworkGenerator generator, String label, String only,
+                               long seed) throws Exception {
+        Graph graph = generator.buildGraph();
+        Town[] towns = graph.vertexSet().toArray(new Town[0]);
+        Road[] roads = graph.edgeSet().toArray(new Road[0]);
+        SplittableRandom random = new SplittableRandom(seed);
+        Town[] sources = new Town[QUERY_COUNT];
+        Town[] targets = new Town[QUERY_COUNT];
+        Road[] probes = new Road[QUERY_COUNT];
+        for (int i = 0; i < QUERY_COUNT; i++) {
+            sources[i] = towns[random.nextInt(towns.length)];
+            targets[i] = towns[random.nextInt(towns.length)];
+            probes[i] = roads[random.nextInt(roads.length)];
+        }
+
+        if (matches(only, "dijkstraShortestPath")) {
+            Graph uncached = generator.buildGraph(new Graph(0));
+            report(benchmark, "dijkstraShortestPath " + label,
+                    index -> {
+                        uncached.dijkstraShortestPath(sources[index % QUERY_COUNT]);
+                        return 1;
+                    });
+        }
+
+        if (matches(only, "shortestPath")) {
+            Graph pointToPoint = generator.buildGraph();
+            pointToPoint.setRoutingMode(RoutingMode.POINT_TO_POINT);
+            report(benchmark, "shortestPath p2p " + label,
+                    index -> pointToPoint.shortestPath(sources[index % QUERY_COUNT], targets[index % QUERY_COUNT]).size());
+        }
+
+        if (matches(only, "getEdge")) {
+            report(benchmark, "getEdge " + label,
+                    index -> {
+                        Road road = probes[index % QUERY_COUNT];
+                        return graph.getEdge(road.getSource(), road.getDestination()).getWeight();
+                    });
+        }
+
+        if (matches(only, "removeVertex")) {
+            report(benchmark, "removeVertex " + label, new Benchmark.Workload() {
+                private Graph victim;
+                private Town[] order;
+
+                @Override
+                public void prepare(int batchSize) {
+                    victim = generator.buildGraph();
+                    order = victim.vertexSet().toArray(new Town[0]);
+                    SplittableRandom shuffle = new SplittableRandom(batchSize);
+                    for (int i = order.length - 1; i > 0; i--) {
+                        int j = shuffle.nextInt(i + 1);
+                        Town swap = order[i];
+                        order[i] = order[j];
+                        order[j] = swap;
+                    }
+                }
+
+                @Override
+                public long invoke(int index) {
+                    return victim.removeVertex(order[index]) ? 1 : 0;
+                }
+
+                @Override
+                public int maxBatchSize() {
+                    return Math.max(1, generator.townCount() / 2);
+                }
+            });
+        }
+
+        if (matches(only, "populateTownGraph") && generator.townCount() <= MAX_LOAD_TOWNS) {
+            File file = File.createTempFile("roads", ".txt");
+            file.deleteOnExit();
+            try {
+                generator.writeRoadFile(file);
+                report(benchmark, "populateTownGraph " + label, new Benchmark.Workload() {
+                    @Override
+                    public long invoke(int index) throws IOException {
+                        TownGraphManager manager = new TownGraphManager();
+                        manager.populateTownGraph(file);
+                        return manager.containsTown(RoadNetworkGenerator.townName(0)) ? 1 : 0;
+                    }
+
+                    @Override
+                    public int maxBatchSize() {
+                        return 1;
+                    }
+                });
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * runs one workload and prints its row
+     *
+     * @param benchmark the harness
+     * @param name the row name
+     * @param workload the operation
+     * @throws Exception if the workload fails
+     */
+    private static void report(Benchmark benchmark, String name, Benchmark.Workload workload) throws Exception {
+        System.out.println(benchmark.run(name, workload));
+    }
+
+    /**
+     * checks if a workload was selected
+     *
+     * @param only the --only filter, or null
+     * @param name the workload name
+     * @return true if it should run
+     */
+    private static boolean matches(String only, String name) {
+        return only == null || name.toLowerCase(Locale.ROOT).contains(only.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * parses a topology name
+     *
+     * @param name grid, geometric, random or scalefree
+     * @return the topology
+     */
+    private static RoadNetworkGenerator.Topology topology(String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "grid":
+                return RoadNetworkGenerator.Topology.GRID;
+            case "geometric":
+                return RoadNetworkGenerator.Topology.RANDOM_GEOMETRIC;
+            case "random":
+                return RoadNetworkGenerator.Topology.RANDOM;
+            case "scalefree":
+                return RoadNetworkGenerator.Topology.SCALE_FREE;
+            default:
+                throw new IllegalArgumentException("unknown topology " + name);
+        }
+    }
+}